@@ -3,6 +3,7 @@ package com.app.shopin.modules.cart.controller;
 import com.app.shopin.modules.cart.dto.AddOrUpdateCartItemDTO;
 import com.app.shopin.modules.cart.dto.CartDTO;
 import com.app.shopin.modules.cart.service.CartService;
+import com.app.shopin.modules.inventory.dto.StockReservationDTO;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -45,6 +46,23 @@ public class CartController {
         return ResponseEntity.ok(cartService.clearCart(currentUser));
     }
 
+    // --- RESERVA DE STOCK DURANTE EL CHECKOUT ---
+    @PostMapping("/reservation")
+    public ResponseEntity<List<StockReservationDTO>> reserveForCheckout(@AuthenticationPrincipal UserDetails currentUser) {
+        return ResponseEntity.ok(cartService.reserveForCheckout(currentUser));
+    }
+
+    @GetMapping("/reservation")
+    public ResponseEntity<List<StockReservationDTO>> getCheckoutReservation(@AuthenticationPrincipal UserDetails currentUser) {
+        return ResponseEntity.ok(cartService.getCheckoutReservation(currentUser));
+    }
+
+    @DeleteMapping("/reservation")
+    public ResponseEntity<Void> releaseCheckoutReservation(@AuthenticationPrincipal UserDetails currentUser) {
+        cartService.releaseCheckoutReservation(currentUser);
+        return ResponseEntity.noContent().build();
+    }
+
     @PostMapping("/items/{productId}/save-for-later")
     public ResponseEntity<Void> saveItemForLater(
             @PathVariable Long productId,
@@ -1,5 +1,6 @@
 package com.app.shopin.modules.cart.entity;
 
+import com.app.shopin.modules.pricing.service.PriceCalculator;
 import com.app.shopin.modules.product.entity.Product;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
@@ -26,10 +27,10 @@ public class CartItem {
     // --- MÉTODO AUXILIAR PARA CALCULAR EL SUBTOTAL ---
     @Transient
     public BigDecimal getSubtotal() {
-        if (product == null || product.getEffectivePrice() == null) {
+        if (product == null) {
             return BigDecimal.ZERO;
         }
-        return product.getEffectivePrice().multiply(BigDecimal.valueOf(quantity));
+        return PriceCalculator.lineTotal(product.getEffectivePrice(), quantity);
     }
 
     public Long getId() {
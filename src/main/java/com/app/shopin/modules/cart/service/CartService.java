@@ -14,16 +14,23 @@ import com.app.shopin.modules.favorites.entity.FavoriteList;
 import com.app.shopin.modules.favorites.entity.FavoriteListIcon;
 import com.app.shopin.modules.favorites.repository.FavoriteListRepository;
 import com.app.shopin.modules.favorites.service.FavoriteService;
+import com.app.shopin.modules.inventory.dto.StockReservationDTO;
+import com.app.shopin.modules.inventory.service.InventoryService;
+import com.app.shopin.modules.pricing.service.PriceCalculator;
+import com.app.shopin.modules.pricing.service.PricingService;
 import com.app.shopin.modules.product.entity.Product;
+import com.app.shopin.modules.product.entity.ProductMedia;
 import com.app.shopin.modules.product.repository.ProductRepository;
 import com.app.shopin.modules.security.entity.PrincipalUser;
 import com.app.shopin.modules.user.entity.User;
+import com.app.shopin.services.cloudinary.ImageVariant;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -44,6 +51,11 @@ public class CartService {
     @Autowired
     private FavoriteListRepository favoriteListRepository;
 
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private PricingService pricingService;
+
     // --- LÓGICA DE CREACIÓN INICIAL ---
     @Transactional
     public void createCartForUser(User user) {
@@ -58,10 +70,12 @@ public class CartService {
     @Transactional
     public CartDTO addOrUpdateItem(AddOrUpdateCartItemDTO dto, UserDetails currentUser) {
         Cart cart = getAndVerifyOwnership(currentUser);
+        // Modificar el carrito cancela el checkout en curso: las unidades retenidas vuelven al stock
+        inventoryService.releaseCart(cart.getId());
         Product product = productRepository.findById(dto.productId())
                 .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Producto no encontrado."));
 
-        // Validamos el stock disponible
+        // Validamos el stock disponible (orientativo: la garantía real la da la reserva en el checkout)
         if (product.getStockQuantity() < dto.quantity()) {
             throw new CustomException(HttpStatus.BAD_REQUEST, "No hay suficiente stock para '" + product.getName() + "'. Disponibles: " + product.getStockQuantity());
         }
@@ -95,6 +109,7 @@ public class CartService {
     @Transactional
     public CartDTO removeItem(Long productId, UserDetails currentUser) {
         Cart cart = getAndVerifyOwnership(currentUser);
+        inventoryService.releaseCart(cart.getId());
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Producto no encontrado."));
 
@@ -117,12 +132,35 @@ public class CartService {
     @Transactional
     public CartDTO clearCart(UserDetails currentUser) {
         Cart cart = getAndVerifyOwnership(currentUser);
+        inventoryService.releaseCart(cart.getId());
         cartItemRepository.deleteAll(cart.getItems());
         cart.getItems().clear(); // Aseguramos que la lista en memoria también se limpie
         cartRepository.save(cart);
         return getCartDTOForUser(currentUser);
     }
 
+    // --- RESERVA DE STOCK PARA EL CHECKOUT ---
+    @Transactional
+    public List<StockReservationDTO> reserveForCheckout(UserDetails currentUser) {
+        Cart cart = getAndVerifyOwnership(currentUser);
+        if (cart.getItems().isEmpty()) {
+            throw new CustomException(HttpStatus.BAD_REQUEST, "El carrito está vacío.");
+        }
+        return inventoryService.reserveCart(cart);
+    }
+
+    @Transactional
+    public void releaseCheckoutReservation(UserDetails currentUser) {
+        Cart cart = getAndVerifyOwnership(currentUser);
+        inventoryService.releaseCart(cart.getId());
+    }
+
+    @Transactional(readOnly = true)
+    public List<StockReservationDTO> getCheckoutReservation(UserDetails currentUser) {
+        Cart cart = getAndVerifyOwnership(currentUser);
+        return inventoryService.getCartReservations(cart.getId());
+    }
+
     // --- LÓGICA PARA "GUARDAR PARA DESPUÉS" ---
     @Transactional
     public void saveItemForLater(Long productId, UserDetails currentUser) {
@@ -166,18 +204,27 @@ public class CartService {
     private CartDTO mapEntityToDto(Cart cart) {
         List<CartItemDTO> itemDTOs = cart.getItems().stream().map(item -> {
             Product p = item.getProduct();
-            String imageUrl = (p.getMedia() != null && !p.getMedia().isEmpty()) ? p.getMedia().get(0).getUrl() : null;
+            BigDecimal unitPrice = pricingService.effectivePrice(p);
+            // Miniatura de la primera imagen ya subida (o el original si no tiene tamaños); las pendientes aún no tienen URL
+            String imageUrl = p.getMedia() == null ? null : p.getMedia().stream()
+                    .filter(ProductMedia::isReady)
+                    .map(media -> media.getUrl(ImageVariant.THUMB))
+                    .findFirst()
+                    .orElse(null);
             return new CartItemDTO(
                     item.getId(),
                     p.getId(),
                     p.getName(),
                     item.getQuantity(),
-                    p.getEffectivePrice(),
-                    item.getSubtotal(),
+                    unitPrice,
+                    PriceCalculator.lineTotal(unitPrice, item.getQuantity()),
                     imageUrl
             );
         }).collect(Collectors.toList());
 
-        return new CartDTO(cart.getId(), itemDTOs, cart.getGrandTotal());
+        BigDecimal grandTotal = itemDTOs.stream()
+                .map(CartItemDTO::subtotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return new CartDTO(cart.getId(), itemDTOs, grandTotal);
     }
 }
\ No newline at end of file
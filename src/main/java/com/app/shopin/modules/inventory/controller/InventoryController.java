@@ -0,0 +1,40 @@
+package com.app.shopin.modules.inventory.controller;
+
+import com.app.shopin.modules.inventory.dto.HotSkuStatusDTO;
+import com.app.shopin.modules.inventory.service.InventoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/inventory")
+@PreAuthorize("hasAnyRole('ADMIN', 'SUPERADMIN')")
+public class InventoryController {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    // --- MODO SKU CALIENTE (CONTADORES EN MEMORIA) ---
+
+    @GetMapping("/hot-skus")
+    public ResponseEntity<HotSkuStatusDTO> getHotSkuStatus() {
+        return ResponseEntity.ok(inventoryService.getHotSkuStatus());
+    }
+
+    // enabled=false vuelca lo pendiente y vuelve a las actualizaciones directas en la base de datos
+    @PutMapping("/hot-skus/mode")
+    public ResponseEntity<HotSkuStatusDTO> setHotSkuMode(@RequestParam boolean enabled) {
+        return ResponseEntity.ok(inventoryService.setHotSkuMode(enabled));
+    }
+
+    @PutMapping("/hot-skus/{productId}")
+    public ResponseEntity<HotSkuStatusDTO> addHotSku(@PathVariable Long productId) {
+        return ResponseEntity.ok(inventoryService.addHotSku(productId));
+    }
+
+    @DeleteMapping("/hot-skus/{productId}")
+    public ResponseEntity<HotSkuStatusDTO> removeHotSku(@PathVariable Long productId) {
+        return ResponseEntity.ok(inventoryService.removeHotSku(productId));
+    }
+}
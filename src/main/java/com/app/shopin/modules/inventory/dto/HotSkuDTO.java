@@ -0,0 +1,8 @@
+package com.app.shopin.modules.inventory.dto;
+
+public record HotSkuDTO(
+        Long productId,
+        int available,
+        // Unidades vendidas en memoria que aún no se han escrito en la tabla products
+        long pendingFlush
+) {}
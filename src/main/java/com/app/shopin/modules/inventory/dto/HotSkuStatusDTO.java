@@ -0,0 +1,8 @@
+package com.app.shopin.modules.inventory.dto;
+
+import java.util.List;
+
+public record HotSkuStatusDTO(
+        boolean enabled,
+        List<HotSkuDTO> products
+) {}
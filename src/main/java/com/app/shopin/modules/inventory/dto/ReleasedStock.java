@@ -0,0 +1,9 @@
+package com.app.shopin.modules.inventory.dto;
+
+// Unidades devueltas al stock de un producto al liberar reservas
+public interface ReleasedStock {
+
+    Long getProductId();
+
+    Long getQuantity();
+}
@@ -0,0 +1,9 @@
+package com.app.shopin.modules.inventory.dto;
+
+import java.time.LocalDateTime;
+
+public record StockReservationDTO(
+        Long productId,
+        int quantity,
+        LocalDateTime expiresAt
+) {}
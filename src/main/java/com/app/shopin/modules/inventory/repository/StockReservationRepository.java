@@ -0,0 +1,51 @@
+package com.app.shopin.modules.inventory.repository;
+
+import com.app.shopin.modules.inventory.dto.ReleasedStock;
+import com.app.shopin.modules.inventory.entity.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    List<StockReservation> findByCartId(Long cartId);
+
+    // Borra las reservas del carrito y devuelve sus unidades al stock en una sola sentencia.
+    // Devuelve las unidades devueltas por producto. Sin @Modifying: Spring Data solo admite void/int en ese caso
+    // y el driver rechaza executeUpdate con RETURNING; InventoryService refresca los productos ya cargados.
+    @Query(value = """
+            WITH released AS (
+                DELETE FROM stock_reservations WHERE cart_id = :cartId
+                RETURNING product_id, quantity
+            ), totals AS (
+                SELECT product_id, SUM(quantity) AS quantity FROM released GROUP BY product_id
+            )
+            UPDATE products p
+            SET stock_quantity = p.stock_quantity + totals.quantity, updated_at = :now
+            FROM totals
+            WHERE p.id = totals.product_id
+            RETURNING p.id AS "productId", totals.quantity AS "quantity"
+            """, nativeQuery = true)
+    List<ReleasedStock> releaseByCartId(@Param("cartId") Long cartId, @Param("now") LocalDateTime now);
+
+    // Igual que releaseByCartId, para todas las reservas vencidas
+    @Query(value = """
+            WITH released AS (
+                DELETE FROM stock_reservations WHERE expires_at < :now
+                RETURNING product_id, quantity
+            ), totals AS (
+                SELECT product_id, SUM(quantity) AS quantity FROM released GROUP BY product_id
+            )
+            UPDATE products p
+            SET stock_quantity = p.stock_quantity + totals.quantity, updated_at = :now
+            FROM totals
+            WHERE p.id = totals.product_id
+            RETURNING p.id AS "productId", totals.quantity AS "quantity"
+            """, nativeQuery = true)
+    List<ReleasedStock> releaseExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,380 @@
+package com.app.shopin.modules.inventory.service;
+
+import com.app.shopin.modules.inventory.dto.HotSkuDTO;
+import com.app.shopin.modules.product.service.ProductDetailCache;
+import com.app.shopin.util.TransactionUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Modo "SKU caliente": para los productos marcados, los descuentos de stock se resuelven en memoria
+ * con un contador repartido en franjas (CAS sin bloqueos) y se escriben en la base de datos por lotes.
+ * El stock de la tabla va por detrás como mucho un intervalo de volcado; los incrementos (reposiciones,
+ * liberación de reservas) siguen yendo a la base de datos y se replican en el contador tras el commit.
+ */
+@Component
+public class HotStockCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(HotStockCounters.class);
+
+    // Potencia de dos para elegir la franja con una máscara
+    private static final int STRIPES = 16;
+
+    private static final String FLUSH_SQL = "UPDATE products SET stock_quantity = stock_quantity - ?, updated_at = ? WHERE id = ?";
+    private static final String STOCK_SQL = "SELECT stock_quantity FROM products WHERE id = ? AND deleted_at IS NULL";
+    private static final String SET_STOCK_SQL = "UPDATE products SET stock_quantity = ?, updated_at = ? WHERE id = ? AND deleted_at IS NULL";
+    private static final String COMPENSATE_SQL = "UPDATE products SET stock_quantity = stock_quantity + ?, updated_at = ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ProductDetailCache productDetailCache;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${inventory.hot-sku.enabled:false}")
+    private volatile boolean enabled;
+    @Value("${inventory.hot-sku.product-ids:}")
+    private List<Long> configuredProductIds;
+
+    private final Map<Long, StripedCounter> counters = new ConcurrentHashMap<>();
+    // Desfase detectado en la pasada anterior de conciliación, pendiente de confirmar
+    private final Map<Long, Long> suspectedDrift = new ConcurrentHashMap<>();
+
+    private TransactionTemplate flushTransaction;
+    private Counter flushedUnits;
+    private Counter driftCorrections;
+
+    @PostConstruct
+    void init() {
+        // El volcado confirma por su cuenta aunque se invoque dentro de otra transacción
+        flushTransaction = new TransactionTemplate(transactionManager);
+        flushTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        Gauge.builder("shopin.inventory.hot.pending", this, HotStockCounters::pendingUnits)
+                .description("Unidades descontadas en memoria pendientes de escribir en la base de datos")
+                .register(meterRegistry);
+        Gauge.builder("shopin.inventory.hot.products", counters, Map::size)
+                .description("Productos en modo SKU caliente")
+                .register(meterRegistry);
+        flushedUnits = Counter.builder("shopin.inventory.hot.flushed")
+                .description("Unidades escritas en la base de datos por el volcado por lotes")
+                .register(meterRegistry);
+        driftCorrections = Counter.builder("shopin.inventory.hot.drift.corrections")
+                .description("Correcciones aplicadas por la conciliación contador/base de datos")
+                .register(meterRegistry);
+
+        if (enabled) {
+            configuredProductIds.forEach(this::track);
+        }
+    }
+
+    // --- CONFIGURACIÓN EN CALIENTE ---
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Desactivar vuelca lo pendiente y devuelve todos los productos al modo de actualización directa
+    public synchronized void setEnabled(boolean enabled) {
+        if (!enabled && this.enabled) {
+            this.enabled = false;
+            Map<Long, StripedCounter> released = new HashMap<>(counters);
+            counters.clear();
+            suspectedDrift.clear();
+            flush(released);
+            released.values().forEach(counter -> counter.retired = true);
+        } else if (enabled && !this.enabled) {
+            this.enabled = true;
+            configuredProductIds.forEach(this::track);
+        }
+    }
+
+    public synchronized void track(Long productId) {
+        if (counters.containsKey(productId)) {
+            return;
+        }
+        Integer stock = readStock(productId);
+        if (stock == null) {
+            log.warn("Producto {} no encontrado: no se activa el modo SKU caliente", productId);
+            return;
+        }
+        counters.put(productId, new StripedCounter(stock));
+    }
+
+    public synchronized void untrack(Long productId) {
+        StripedCounter counter = counters.remove(productId);
+        if (counter == null) {
+            return;
+        }
+        suspectedDrift.remove(productId);
+        flush(Map.of(productId, counter));
+        // A partir de aquí las compensaciones de transacciones en curso van directas a la base de datos
+        counter.retired = true;
+    }
+
+    public boolean isHot(Long productId) {
+        return enabled && counters.containsKey(productId);
+    }
+
+    public List<HotSkuDTO> getStatus() {
+        return counters.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(e -> new HotSkuDTO(e.getKey(), e.getValue().available(), e.getValue().pending.sum()))
+                .toList();
+    }
+
+    // --- OPERACIONES DE STOCK ---
+
+    /**
+     * Descuenta en memoria. Si la transacción que lo pide se revierte, las unidades vuelven al contador
+     * y el descuento se anula antes de llegar a la base de datos.
+     */
+    public boolean tryDecrement(Long productId, int quantity) {
+        StripedCounter counter = counters.get(productId);
+        if (counter == null || !counter.tryAcquire(quantity)) {
+            return false;
+        }
+        counter.pending.add(quantity);
+        TransactionUtils.afterRollback(() -> compensate(productId, counter, quantity));
+        return true;
+    }
+
+    /**
+     * Devuelve las unidades de un descuento revertido. Con el mismo bloqueo que el volcado: si el contador sigue
+     * activo, se anula el pendiente antes de que llegue a la base de datos; si ya se retiró (untrack o modo
+     * desactivado), su pendiente ya se volcó y la devolución se escribe directamente en la tabla.
+     */
+    private synchronized void compensate(Long productId, StripedCounter counter, int quantity) {
+        if (!counter.retired) {
+            counter.release(quantity);
+            counter.pending.add(-quantity);
+            return;
+        }
+        try {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            flushTransaction.executeWithoutResult(status -> jdbcTemplate.update(COMPENSATE_SQL, quantity, now, productId));
+            productDetailCache.evict(productId);
+        } catch (DataAccessException e) {
+            log.error("No se pudieron devolver {} unidades del producto {} tras un rollback", quantity, productId, e);
+        }
+    }
+
+    /**
+     * Fija un valor absoluto de stock para un SKU caliente. Todo ocurre con el bloqueo del volcado: se vacía el
+     * contador (los descuentos concurrentes fallan mientras tanto en lugar de vender sobre el valor anterior),
+     * se vuelca lo pendiente, se escribe el valor absoluto en su propia transacción y el contador arranca de él.
+     * Devuelve null si el producto no está en modo caliente y false si no existe.
+     */
+    public synchronized Boolean setStock(Long productId, int newStock) {
+        StripedCounter counter = counters.get(productId);
+        if (!enabled || counter == null) {
+            return null;
+        }
+        int drained = counter.drain();
+        flush(Map.of(productId, counter));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Integer updated;
+        try {
+            updated = flushTransaction.execute(status -> jdbcTemplate.update(SET_STOCK_SQL, newStock, now, productId));
+        } catch (DataAccessException e) {
+            counter.release(drained);
+            throw e;
+        }
+        if (updated == null || updated == 0) {
+            counter.release(drained);
+            return false;
+        }
+        counter.release(newStock);
+        suspectedDrift.remove(productId);
+        return true;
+    }
+
+    // Réplica de un cambio ya aplicado en la base de datos (reposición, liberación de reservas)
+    public void applyCommittedDelta(Long productId, long delta) {
+        TransactionUtils.afterCommit(() -> {
+            StripedCounter counter = counters.get(productId);
+            if (counter != null) {
+                counter.release(Math.toIntExact(delta));
+            }
+        });
+    }
+
+    private Integer readStock(Long productId) {
+        try {
+            return jdbcTemplate.queryForObject(STOCK_SQL, Integer.class, productId);
+        } catch (EmptyResultDataAccessException e) {
+            return null;
+        }
+    }
+
+    // --- VOLCADO Y CONCILIACIÓN ---
+
+    @Scheduled(fixedDelayString = "${inventory.hot-sku.flush-interval-ms:500}")
+    public void flush() {
+        flush(counters);
+    }
+
+    private synchronized void flush(Map<Long, StripedCounter> source) {
+        Map<Long, Long> taken = new HashMap<>();
+        source.forEach((productId, counter) -> {
+            long delta = counter.pending.sumThenReset();
+            if (delta != 0) {
+                taken.put(productId, delta);
+            }
+        });
+        if (taken.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = taken.entrySet().stream()
+                .map(e -> new Object[]{e.getValue(), now, e.getKey()})
+                .toList();
+        try {
+            flushTransaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(FLUSH_SQL, batch));
+            flushedUnits.increment(taken.values().stream().mapToLong(Long::longValue).sum());
+            taken.keySet().forEach(productDetailCache::evict);
+        } catch (DataAccessException e) {
+            // Se reintenta en el siguiente ciclo: lo tomado vuelve a quedar pendiente
+            taken.forEach((productId, delta) -> source.get(productId).pending.add(delta));
+            log.warn("No se pudo volcar el stock de los SKU calientes, se reintentará: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Compara stock(BD) - pendiente con el disponible del contador. Un desfase solo se corrige si se repite
+     * igual en dos pasadas seguidas, para no confundir una operación en curso con una desviación real
+     * (p. ej. una edición manual de la tabla).
+     */
+    @Scheduled(fixedDelayString = "${inventory.hot-sku.reconcile-interval-ms:30000}")
+    public synchronized void reconcile() {
+        flush();
+        counters.forEach((productId, counter) -> {
+            long pendingBefore = counter.pending.sum();
+            int availableBefore = counter.available();
+            Integer stock = readStock(productId);
+            if (stock == null || pendingBefore != counter.pending.sum() || availableBefore != counter.available()) {
+                return; // Hubo tráfico durante la lectura: se revisa en la siguiente pasada
+            }
+
+            long drift = stock - pendingBefore - availableBefore;
+            if (drift == 0) {
+                suspectedDrift.remove(productId);
+                return;
+            }
+            Long previous = suspectedDrift.put(productId, drift);
+            if (previous != null && previous == drift) {
+                counter.release(Math.toIntExact(drift));
+                suspectedDrift.remove(productId);
+                driftCorrections.increment();
+                log.warn("Conciliación de stock del producto {}: contador corregido en {} unidades", productId, drift);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private double pendingUnits() {
+        return counters.values().stream().mapToLong(c -> c.pending.sum()).sum();
+    }
+
+    /**
+     * Stock disponible repartido en franjas. Cada hilo empieza por su propia franja, así que los descuentos
+     * concurrentes casi nunca compiten por la misma celda.
+     */
+    static final class StripedCounter {
+
+        private final AtomicIntegerArray stripes = new AtomicIntegerArray(STRIPES);
+        // Unidades descontadas (o devueltas, si es negativo) aún no escritas en la base de datos
+        final LongAdder pending = new LongAdder();
+        // Fuera del mapa y ya volcado; se lee y escribe con el bloqueo de HotStockCounters
+        boolean retired;
+
+        StripedCounter(int initialStock) {
+            int share = Math.max(initialStock, 0) / STRIPES;
+            for (int i = 0; i < STRIPES; i++) {
+                stripes.set(i, share);
+            }
+            stripes.addAndGet(0, Math.max(initialStock, 0) - share * STRIPES);
+        }
+
+        boolean tryAcquire(int quantity) {
+            int home = homeStripe();
+            for (int i = 0; i < STRIPES; i++) {
+                int index = (home + i) & (STRIPES - 1);
+                int value = stripes.get(index);
+                while (value >= quantity) {
+                    if (stripes.compareAndSet(index, value, value - quantity)) {
+                        return true;
+                    }
+                    value = stripes.get(index);
+                }
+            }
+            return acquireConsolidated(home, quantity);
+        }
+
+        // Ninguna franja tiene suficiente por sí sola: se reúne el resto en la franja propia
+        private synchronized boolean acquireConsolidated(int home, int quantity) {
+            int collected = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                collected += stripes.getAndSet(i, 0);
+            }
+            boolean acquired = collected >= quantity;
+            stripes.addAndGet(home, acquired ? collected - quantity : collected);
+            return acquired;
+        }
+
+        // Retira todo el disponible; tryAcquire falla hasta el siguiente release
+        int drain() {
+            int collected = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                collected += stripes.getAndSet(i, 0);
+            }
+            return collected;
+        }
+
+        void release(int quantity) {
+            stripes.addAndGet(homeStripe(), quantity);
+        }
+
+        int available() {
+            int total = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                total += stripes.get(i);
+            }
+            return total;
+        }
+
+        private static int homeStripe() {
+            return (int) Thread.currentThread().threadId() & (STRIPES - 1);
+        }
+    }
+}
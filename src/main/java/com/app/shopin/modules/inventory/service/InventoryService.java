@@ -0,0 +1,204 @@
+package com.app.shopin.modules.inventory.service;
+
+import com.app.shopin.modules.cart.entity.Cart;
+import com.app.shopin.modules.cart.entity.CartItem;
+import com.app.shopin.modules.exception.CustomException;
+import com.app.shopin.modules.inventory.dto.HotSkuStatusDTO;
+import com.app.shopin.modules.inventory.dto.ReleasedStock;
+import com.app.shopin.modules.inventory.dto.StockReservationDTO;
+import com.app.shopin.modules.inventory.entity.StockReservation;
+import com.app.shopin.modules.inventory.repository.StockReservationRepository;
+import com.app.shopin.modules.product.entity.Product;
+import com.app.shopin.modules.product.repository.ProductRepository;
+import com.app.shopin.modules.product.service.ProductDetailCache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Operaciones de stock sin lectura-modificación-escritura: cada cambio es un UPDATE condicional,
+ * así que las peticiones concurrentes no pierden actualizaciones ni venden unidades que no existen.
+ * El stock de la tabla es el disponible: las reservas de los carritos ya están descontadas.
+ */
+@Service
+public class InventoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryService.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private StockReservationRepository reservationRepository;
+    @Autowired
+    private ProductDetailCache productDetailCache;
+    @Autowired
+    private HotStockCounters hotStockCounters;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${inventory.reservation.ttl:15m}")
+    private Duration reservationTtl;
+
+    // --- OPERACIONES ATÓMICAS DE STOCK ---
+
+    @Transactional
+    public void setStock(Long productId, int newStock) {
+        // SKU caliente: el valor absoluto se escribe con el bloqueo del contador, después de volcar lo pendiente
+        Boolean hotUpdated = hotStockCounters.setStock(productId, newStock);
+        if (Boolean.FALSE.equals(hotUpdated)) {
+            throw new CustomException(HttpStatus.NOT_FOUND, "Producto no encontrado.");
+        }
+        if (hotUpdated == null && productRepository.setStock(productId, newStock, LocalDateTime.now()) == 0) {
+            throw new CustomException(HttpStatus.NOT_FOUND, "Producto no encontrado.");
+        }
+        productDetailCache.evict(productId);
+    }
+
+    @Transactional
+    public void restock(Long productId, int quantityToAdd) {
+        if (productRepository.restock(productId, quantityToAdd, LocalDateTime.now()) == 0) {
+            throw new CustomException(HttpStatus.NOT_FOUND, "Producto no encontrado.");
+        }
+        if (hotStockCounters.isHot(productId)) {
+            hotStockCounters.applyCommittedDelta(productId, quantityToAdd);
+        }
+        productDetailCache.evict(productId);
+    }
+
+    // Devuelve false si no quedan unidades suficientes; el stock nunca baja de cero
+    @Transactional
+    public boolean tryDecrement(Long productId, int quantity) {
+        if (hotStockCounters.isHot(productId)) {
+            // Sin escritura en la fila: el volcado por lotes la aplicará (y refrescará la caché)
+            return hotStockCounters.tryDecrement(productId, quantity);
+        }
+        boolean decremented = productRepository.decrementStock(productId, quantity, LocalDateTime.now()) == 1;
+        if (decremented) {
+            productDetailCache.evict(productId);
+        }
+        return decremented;
+    }
+
+    // --- RESERVAS DE CARRITO ---
+
+    /**
+     * Retiene las unidades de todos los items del carrito durante el checkout (todo o nada).
+     * Si el carrito ya tenía reservas, se sustituyen por las cantidades actuales.
+     */
+    @Transactional
+    public List<StockReservationDTO> reserveCart(Cart cart) {
+        releaseCart(cart.getId());
+
+        LocalDateTime expiresAt = LocalDateTime.now().plus(reservationTtl);
+        // Orden fijo por producto: dos checkouts concurrentes bloquean las filas en el mismo orden (sin deadlocks)
+        List<CartItem> items = cart.getItems().stream()
+                .sorted(Comparator.comparing(item -> item.getProduct().getId()))
+                .toList();
+
+        for (CartItem item : items) {
+            Product product = item.getProduct();
+            if (!tryDecrement(product.getId(), item.getQuantity())) {
+                // La excepción revierte la transacción: las unidades ya reservadas vuelven al stock
+                throw new CustomException(HttpStatus.CONFLICT, "No hay suficiente stock para '" + product.getName() + "'.");
+            }
+            StockReservation reservation = new StockReservation();
+            reservation.setCart(cart);
+            reservation.setProduct(product);
+            reservation.setQuantity(item.getQuantity());
+            reservation.setExpiresAt(expiresAt);
+            reservationRepository.save(reservation);
+        }
+
+        return items.stream()
+                .map(item -> new StockReservationDTO(item.getProduct().getId(), item.getQuantity(), expiresAt))
+                .toList();
+    }
+
+    @Transactional
+    public void releaseCart(Long cartId) {
+        applyReleased(reservationRepository.releaseByCartId(cartId, LocalDateTime.now()));
+    }
+
+    @Transactional(readOnly = true)
+    public List<StockReservationDTO> getCartReservations(Long cartId) {
+        return reservationRepository.findByCartId(cartId).stream()
+                .map(r -> new StockReservationDTO(r.getProduct().getId(), r.getQuantity(), r.getExpiresAt()))
+                .toList();
+    }
+
+    // Devuelve al stock las reservas de checkouts abandonados
+    @Scheduled(fixedDelayString = "${inventory.reservation.release-interval-ms:60000}")
+    @Transactional
+    public void releaseExpiredReservations() {
+        List<ReleasedStock> released = reservationRepository.releaseExpired(LocalDateTime.now());
+        if (!released.isEmpty()) {
+            applyReleased(released);
+            log.info("Reservas de stock vencidas liberadas para {} productos", released.size());
+        }
+    }
+
+    private void applyReleased(List<ReleasedStock> released) {
+        refreshLoadedProducts(released);
+        for (ReleasedStock stock : released) {
+            if (hotStockCounters.isHot(stock.getProductId())) {
+                hotStockCounters.applyCommittedDelta(stock.getProductId(), stock.getQuantity());
+            }
+        }
+        productDetailCache.evictAll(released.stream().map(ReleasedStock::getProductId).toList());
+    }
+
+    /**
+     * La liberación es una sentencia nativa (DELETE ... RETURNING + UPDATE) que no pasa por el contexto de
+     * persistencia. Los productos ya cargados en esta transacción se refrescan para que su stockQuantity no quede
+     * desfasado; no se limpia todo el contexto porque quien llama (p. ej. reserveCart) sigue usando el carrito.
+     * Los que no están cargados se leerán ya actualizados.
+     */
+    private void refreshLoadedProducts(List<ReleasedStock> released) {
+        for (ReleasedStock stock : released) {
+            Product product = entityManager.getReference(Product.class, stock.getProductId());
+            if (Hibernate.isInitialized(product)) {
+                entityManager.refresh(product);
+            }
+        }
+    }
+
+    // --- MODO SKU CALIENTE ---
+
+    public HotSkuStatusDTO getHotSkuStatus() {
+        return new HotSkuStatusDTO(hotStockCounters.isEnabled(), hotStockCounters.getStatus());
+    }
+
+    public HotSkuStatusDTO setHotSkuMode(boolean enabled) {
+        hotStockCounters.setEnabled(enabled);
+        return getHotSkuStatus();
+    }
+
+    public HotSkuStatusDTO addHotSku(Long productId) {
+        if (!hotStockCounters.isEnabled()) {
+            throw new CustomException(HttpStatus.BAD_REQUEST, "El modo SKU caliente está desactivado.");
+        }
+        if (!productRepository.existsById(productId)) {
+            throw new CustomException(HttpStatus.NOT_FOUND, "Producto no encontrado.");
+        }
+        hotStockCounters.track(productId);
+        return getHotSkuStatus();
+    }
+
+    public HotSkuStatusDTO removeHotSku(Long productId) {
+        hotStockCounters.untrack(productId);
+        return getHotSkuStatus();
+    }
+}
@@ -0,0 +1,52 @@
+package com.app.shopin.modules.media.controller;
+
+import com.app.shopin.services.avatar.AvatarRenderer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+
+/**
+ * Sirve los avatares de iniciales, p. ej. GET /avatars/RO-5.png (o .webp si hay codificador WebP).
+ * La imagen depende solo de la URL, así que se cachea como inmutable.
+ */
+@RestController
+@RequestMapping("/avatars")
+public class AvatarController {
+
+    @Autowired
+    private AvatarRenderer avatarRenderer;
+
+    @GetMapping("/{fileName:.+}")
+    public ResponseEntity<byte[]> getAvatar(@PathVariable String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        int dash = fileName.lastIndexOf('-', dot);
+        if (dot < 0 || dash <= 0) {
+            return ResponseEntity.notFound().build();
+        }
+        String format = fileName.substring(dot + 1);
+        if (!format.equals("png") && !format.equals("webp")) {
+            return ResponseEntity.notFound().build();
+        }
+
+        int color;
+        try {
+            color = Integer.parseInt(fileName.substring(dash + 1, dot));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.notFound().build();
+        }
+        return avatarRenderer.render(fileName.substring(0, dash), color, format)
+                .map(image -> ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType("image/" + format))
+                        .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                        .eTag(fileName)
+                        .body(image))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,152 @@
+package com.app.shopin.modules.media.controller;
+
+import com.app.shopin.services.storage.LocalFileStorageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Sirve los archivos del almacenamiento local (storage.provider=local).
+ * Las rutas son por contenido, así que las respuestas se cachean como inmutables y el ETag es el propio hash.
+ * Admite peticiones Range (necesarias para avanzar en un video) y envía el archivo sin copiarlo por la JVM:
+ * con sendfile de Tomcat cuando el conector lo soporta y, si no, con FileChannel.transferTo.
+ */
+@RestController
+@RequestMapping("/media")
+@ConditionalOnProperty(name = "storage.provider", havingValue = "local")
+public class LocalMediaController {
+
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    // Atributos con los que Tomcat envía el archivo con sendfile al terminar la petición
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private LocalFileStorageService storageService;
+
+    private record ByteRange(long start, long end) {}
+
+    @GetMapping("/{*publicId}")
+    public void serveFile(@PathVariable String publicId, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Optional<Path> resolved = storageService.resolve(publicId.substring(1));
+        if (resolved.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Path file = resolved.get();
+        long size = Files.size(file);
+        String fileName = file.getFileName().toString();
+        String etag = "\"" + fileName.substring(0, fileName.lastIndexOf('.')) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        ByteRange range = new ByteRange(0, size - 1);
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        // Con If-Range de otra versión se ignora el rango y se envía el archivo completo
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+            Optional<ByteRange> requested = parseRange(rangeHeader, size);
+            if (requested == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (requested.isPresent()) {
+                range = requested.get();
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + range.start() + "-" + range.end() + "/" + size);
+            }
+        }
+
+        long length = range.end() - range.start() + 1;
+        response.setContentType(storageService.contentTypeOf(file));
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, range.start());
+            request.setAttribute(SENDFILE_END, range.end() + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = range.start();
+            long remaining = length;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    /**
+     * Un solo rango "bytes=a-b", "bytes=a-" o "bytes=-n". Devuelve vacío si la cabecera se ignora
+     * (varios rangos o sintaxis desconocida: se envía el archivo completo) y null si el rango no es satisfacible.
+     */
+    private Optional<ByteRange> parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.contains(",")) {
+            return Optional.empty();
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return Optional.empty();
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(size - suffix, 0);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            }
+            if (start >= size || start > end) {
+                return null;
+            }
+            return Optional.of(new ByteRange(start, end));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+}
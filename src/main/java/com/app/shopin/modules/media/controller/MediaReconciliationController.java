@@ -0,0 +1,31 @@
+package com.app.shopin.modules.media.controller;
+
+import com.app.shopin.modules.media.dto.MediaReconciliationReportDTO;
+import com.app.shopin.modules.media.service.MediaReconciliationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/media/reconciliation")
+@PreAuthorize("hasAnyRole('ADMIN', 'SUPERADMIN')")
+public class MediaReconciliationController {
+
+    @Autowired
+    private MediaReconciliationService mediaReconciliationService;
+
+    // Informe de la última ejecución (programada o manual)
+    @GetMapping
+    public ResponseEntity<MediaReconciliationReportDTO> getLastReport() {
+        return mediaReconciliationService.getLastReport()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+    // Por defecto solo informa; dryRun=false encola el borrado de los huérfanos encontrados
+    @PostMapping
+    public ResponseEntity<MediaReconciliationReportDTO> reconcile(@RequestParam(defaultValue = "true") boolean dryRun) {
+        return ResponseEntity.ok(mediaReconciliationService.reconcile(dryRun));
+    }
+}
@@ -0,0 +1,19 @@
+package com.app.shopin.modules.media.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record MediaReconciliationReportDTO(
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt,
+        boolean dryRun, // true: solo se informa, no se encola ningún borrado
+        long scanned, // Objetos listados en el almacenamiento
+        long referenced,
+        long skippedRecent, // Sin referencia pero más nuevos que el periodo de gracia (subidas en curso)
+        long orphans,
+        long queuedForDeletion,
+        long missing, // Referencias en la base de datos cuyo objeto no existe en el almacenamiento
+        List<String> orphanSample,
+        List<String> missingSample,
+        String abortedReason // null si el recorrido terminó
+) {}
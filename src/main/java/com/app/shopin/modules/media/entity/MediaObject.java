@@ -0,0 +1,103 @@
+package com.app.shopin.modules.media.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Objeto guardado en el almacenamiento, identificado por el hash de su contenido y compartido por referencias.
+@Entity
+@Table(name = "media_objects", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_media_objects_hash_variant", columnNames = {"contentHash", "variant"}),
+        @UniqueConstraint(name = "uk_media_objects_public_id", columnNames = "publicId")
+})
+public class MediaObject {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // SHA-256 en hexadecimal del archivo original
+    @Column(nullable = false, length = 64)
+    private String contentHash;
+
+    // Mismo contenido con otra carpeta o transformación es otro objeto, p. ej. "image:PRODUCT:products"
+    @Column(nullable = false)
+    private String variant;
+
+    @Column(nullable = false)
+    private String publicId;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String url;
+
+    @Column(nullable = false)
+    private String resourceType;
+
+    // Referencias vivas (filas de multimedia, avatares...) que usan el objeto
+    @Column(nullable = false)
+    private int refCount;
+
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getVariant() {
+        return variant;
+    }
+
+    public void setVariant(String variant) {
+        this.variant = variant;
+    }
+
+    public String getPublicId() {
+        return publicId;
+    }
+
+    public void setPublicId(String publicId) {
+        this.publicId = publicId;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    public void setResourceType(String resourceType) {
+        this.resourceType = resourceType;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(int refCount) {
+        this.refCount = refCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,93 @@
+package com.app.shopin.modules.media.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Archivo del almacenamiento pendiente de borrar, registrado en la misma transacción que lo dejó sin uso.
+@Entity
+@Table(name = "pending_media_deletions", indexes = {
+        @Index(name = "idx_pending_media_deletions_next_attempt", columnList = "nextAttemptAt")
+})
+public class PendingMediaDeletion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String publicId;
+
+    // "image" o "video": el backend borra por lotes de un mismo tipo
+    @Column(nullable = false)
+    private String resourceType;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    // El worker solo toma filas vencidas; al tomarlas se adelanta para que nadie más las repita mientras tanto
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getPublicId() {
+        return publicId;
+    }
+
+    public void setPublicId(String publicId) {
+        this.publicId = publicId;
+    }
+
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    public void setResourceType(String resourceType) {
+        this.resourceType = resourceType;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,33 @@
+package com.app.shopin.modules.media.repository;
+
+import com.app.shopin.modules.media.entity.MediaObject;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface MediaObjectRepository extends JpaRepository<MediaObject, Long> {
+
+    Optional<MediaObject> findByContentHashAndVariant(String contentHash, String variant);
+
+    // Los contadores se cambian con una sola sentencia: dos subidas o borrados concurrentes no se pisan
+    @Modifying
+    @Query("UPDATE MediaObject m SET m.refCount = m.refCount + 1 WHERE m.id = :id")
+    int incrementRefCount(@Param("id") Long id);
+
+    // Devuelve el contador resultante, o nada si el publicId no está registrado (objetos anteriores al registro)
+    @Query(value = "UPDATE media_objects SET ref_count = ref_count - 1 WHERE public_id = :publicId AND ref_count > 0 RETURNING ref_count",
+            nativeQuery = true)
+    Optional<Integer> decrementRefCount(@Param("publicId") String publicId);
+
+    // Solo borra si nadie lo ha vuelto a referenciar entre el decremento y el borrado
+    @Modifying
+    @Query("DELETE FROM MediaObject m WHERE m.publicId = :publicId AND m.refCount = 0")
+    int deleteIfUnreferenced(@Param("publicId") String publicId);
+
+    boolean existsByPublicId(String publicId);
+}
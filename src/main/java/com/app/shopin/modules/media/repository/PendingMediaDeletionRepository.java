@@ -0,0 +1,33 @@
+package com.app.shopin.modules.media.repository;
+
+import com.app.shopin.modules.media.entity.PendingMediaDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PendingMediaDeletionRepository extends JpaRepository<PendingMediaDeletion, Long> {
+
+    /**
+     * Toma un lote de borrados vencidos y los aparta hasta leaseUntil. SKIP LOCKED deja que varias instancias
+     * drenen la cola a la vez sin repartirse las mismas filas; si el worker muere, las filas vuelven a vencer solas.
+     */
+    @Query(value = """
+            UPDATE pending_media_deletions SET next_attempt_at = :leaseUntil
+            WHERE id IN (SELECT id FROM pending_media_deletions WHERE next_attempt_at <= :now
+                         ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED)
+            RETURNING *
+            """, nativeQuery = true)
+    List<PendingMediaDeletion> claimDue(@Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil,
+                                        @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM PendingMediaDeletion d WHERE d.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,303 @@
+package com.app.shopin.modules.media.service;
+
+import com.app.shopin.modules.exception.CustomException;
+import com.app.shopin.modules.media.entity.MediaObject;
+import com.app.shopin.modules.media.repository.MediaObjectRepository;
+import com.app.shopin.services.cloudinary.ImageType;
+import com.app.shopin.services.cloudinary.StorageService;
+import com.app.shopin.services.cloudinary.StoredObjectPage;
+import com.app.shopin.util.TransactionUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * StorageService que evita subir dos veces el mismo contenido. Cada archivo se resume con SHA-256 (en streaming)
+ * y se busca en el registro media_objects: si ya existe para la misma carpeta y transformación se reutiliza su
+ * publicId y se suma una referencia; si no, se sube con el backend configurado y se registra.
+ * deleteFile resta una referencia y solo borra el objeto del backend cuando se va la última.
+ * Los objetos subidos antes de existir el registro no tienen entrada y se borran directamente, como antes.
+ */
+@Service
+@Primary
+public class DeduplicatingStorageService implements StorageService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeduplicatingStorageService.class);
+
+    private static final int FETCH_CONNECT_TIMEOUT_MS = 5_000;
+    private static final int FETCH_READ_TIMEOUT_MS = 15_000;
+
+    @Autowired
+    @Qualifier("storageBackend")
+    private StorageService delegate;
+    @Autowired
+    private MediaObjectRepository mediaObjectRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private TransactionTemplate registryTransaction;
+    private Counter reusedUploads;
+
+    @PostConstruct
+    void init() {
+        // El registro se actualiza por su cuenta: las subidas ya no ocurren dentro de la transacción de la petición
+        registryTransaction = new TransactionTemplate(transactionManager);
+        registryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        reusedUploads = Counter.builder("shopin.media.dedup.hits")
+                .description("Subidas resueltas con un objeto ya almacenado con el mismo contenido")
+                .register(meterRegistry);
+    }
+
+    // --- SUBIDAS ---
+
+    @Override
+    public Map<String, String> uploadImage(MultipartFile file, String subfolder, ImageType imageType) {
+        // El multipart se puede leer más de una vez: se resume y, si hace falta, se sube el original
+        return acquire(hash(file), "image", imageType, subfolder, () -> delegate.uploadImage(file, subfolder, imageType));
+    }
+
+    @Override
+    public Map<String, String> uploadVideo(MultipartFile file, String subfolder) {
+        return acquire(hash(file), "video", null, subfolder, () -> delegate.uploadVideo(file, subfolder));
+    }
+
+    @Override
+    public Map<String, String> uploadImage(Path file, String subfolder, ImageType imageType) {
+        return acquire(hash(file), "image", imageType, subfolder, () -> delegate.uploadImage(file, subfolder, imageType));
+    }
+
+    @Override
+    public Map<String, String> uploadVideo(Path file, String subfolder) {
+        return acquire(hash(file), "video", null, subfolder, () -> delegate.uploadVideo(file, subfolder));
+    }
+
+    @Override
+    public Map<String, String> uploadImage(InputStream input, String subfolder, ImageType imageType) {
+        return withSpooled(input, file -> uploadImage(file, subfolder, imageType));
+    }
+
+    @Override
+    public Map<String, String> uploadVideo(InputStream input, String subfolder) {
+        return withSpooled(input, file -> uploadVideo(file, subfolder));
+    }
+
+    // Avatares generados o de proveedores OAuth: la misma URL suele devolver siempre la misma imagen
+    @Override
+    public Map<String, String> uploadFromUrl(String url, String subfolder, ImageType imageType) {
+        try {
+            // La descarga ocurre aquí y no en el backend: sin timeouts, un servidor que no responde retendría el hilo
+            URLConnection connection = new URL(url).openConnection();
+            connection.setConnectTimeout(FETCH_CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(FETCH_READ_TIMEOUT_MS);
+            try (InputStream input = connection.getInputStream()) {
+                return uploadImage(input, subfolder, imageType);
+            }
+        } catch (IOException e) {
+            log.error("Error al procesar la imagen desde la URL: {}", url, e);
+            throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al procesar la imagen desde la URL.");
+        }
+    }
+
+    @Override
+    public void deleteFile(String publicId, String resourceType) {
+        if (publicId == null || publicId.isBlank()) return;
+        if (Boolean.TRUE.equals(registryTransaction.execute(status -> releaseReference(publicId)))) {
+            delegate.deleteFile(publicId, resourceType);
+        }
+    }
+
+    @Override
+    public Set<String> deleteFiles(Collection<String> publicIds, String resourceType) {
+        List<String> unreferenced = registryTransaction.execute(status ->
+                publicIds.stream().filter(this::releaseReference).toList());
+        return unreferenced.isEmpty() ? Set.of() : delegate.deleteFiles(unreferenced, resourceType);
+    }
+
+    /**
+     * Resta una referencia al objeto dentro de la transacción actual. Devuelve true si ya nadie lo usa y hay que
+     * borrarlo del backend, también para los objetos anteriores al registro (no tienen entrada).
+     * La cola de borrados lo llama en la misma transacción que retira la multimedia.
+     */
+    public boolean releaseReference(String publicId) {
+        Optional<Integer> remaining = mediaObjectRepository.decrementRefCount(publicId);
+        if (remaining.isEmpty()) {
+            return !mediaObjectRepository.existsByPublicId(publicId);
+        }
+        // Solo borra la entrada si nadie lo ha vuelto a referenciar entre el decremento y el borrado
+        return remaining.get() == 0 && mediaObjectRepository.deleteIfUnreferenced(publicId) > 0;
+    }
+
+    @Override
+    public StoredObjectPage listObjects(String folder, String resourceType, String cursor, int limit) {
+        return delegate.listObjects(folder, resourceType, cursor, limit);
+    }
+
+    // Los tamaños se derivan del publicId, que es el mismo para todas las referencias al contenido
+    @Override
+    public Map<String, String> imageVariantUrls(String publicId) {
+        return delegate.imageVariantUrls(publicId);
+    }
+
+    @Override
+    public boolean isImageFile(MultipartFile file) {
+        return delegate.isImageFile(file);
+    }
+
+    @Override
+    public boolean isVideoFile(MultipartFile file) {
+        return delegate.isVideoFile(file);
+    }
+
+    // --- REGISTRO ---
+
+    private Map<String, String> acquire(String contentHash, String resourceType, ImageType imageType, String subfolder,
+                                        Supplier<Map<String, String>> upload) {
+        String variant = resourceType + ":" + (imageType != null ? imageType.name() : "") + ":" + subfolder;
+
+        Optional<Map<String, String>> existing = reuse(contentHash, variant);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        Map<String, String> uploaded = upload.get();
+        MediaObject object = new MediaObject();
+        object.setContentHash(contentHash);
+        object.setVariant(variant);
+        object.setPublicId(uploaded.get("publicId"));
+        object.setUrl(uploaded.get("url"));
+        object.setResourceType(resourceType);
+        object.setRefCount(1);
+        try {
+            registryTransaction.executeWithoutResult(status -> mediaObjectRepository.save(object));
+        } catch (DataIntegrityViolationException e) {
+            // Otra subida del mismo contenido se registró antes: se usa la suya y se descarta la propia
+            Optional<Map<String, String>> winner = reuse(contentHash, variant);
+            if (winner.isPresent() && !winner.get().get("publicId").equals(uploaded.get("publicId"))) {
+                delegate.deleteFile(uploaded.get("publicId"), resourceType);
+                return winner.get();
+            }
+            throw e;
+        }
+        releaseOnRollback(uploaded.get("publicId"), resourceType);
+        return uploaded;
+    }
+
+    private Optional<Map<String, String>> reuse(String contentHash, String variant) {
+        // Si la fila se borró entre la búsqueda y el incremento (último release concurrente), no hay nada que
+        // reutilizar: el archivo remoto puede estar ya en la cola de borrado y se sube de nuevo
+        Optional<MediaObject> reused = registryTransaction.execute(status ->
+                mediaObjectRepository.findByContentHashAndVariant(contentHash, variant)
+                        .filter(object -> mediaObjectRepository.incrementRefCount(object.getId()) == 1));
+        if (reused.isEmpty()) {
+            return Optional.empty();
+        }
+        reusedUploads.increment();
+        MediaObject object = reused.get();
+        releaseOnRollback(object.getPublicId(), object.getResourceType());
+
+        Map<String, String> result = new HashMap<>();
+        result.put("url", object.getUrl());
+        result.put("publicId", object.getPublicId());
+        return Optional.of(result);
+    }
+
+    // Si quien pidió la subida revierte su transacción, la referencia nunca llegó a guardarse
+    private void releaseOnRollback(String publicId, String resourceType) {
+        TransactionUtils.afterRollback(() -> {
+            try {
+                deleteFile(publicId, resourceType);
+            } catch (RuntimeException e) {
+                log.warn("No se pudo liberar la referencia a {} tras el rollback", publicId, e);
+            }
+        });
+    }
+
+    // --- HASH EN STREAMING ---
+
+    private interface SpooledUpload {
+        Map<String, String> upload(Path file);
+    }
+
+    // Un InputStream solo se puede leer una vez: se vuelca a un temporal para resumirlo y subirlo
+    private Map<String, String> withSpooled(InputStream input, SpooledUpload upload) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile("shopin-dedup-", null);
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                input.transferTo(out);
+            }
+            return upload.upload(temp);
+        } catch (IOException e) {
+            throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al leer el archivo.");
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    log.warn("No se pudo borrar el temporal {}", temp, e);
+                }
+            }
+        }
+    }
+
+    private String hash(MultipartFile file) {
+        try (InputStream input = file.getInputStream()) {
+            return sha256(input);
+        } catch (IOException e) {
+            throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al leer el archivo.");
+        }
+    }
+
+    private String hash(Path file) {
+        try (InputStream input = Files.newInputStream(file)) {
+            return sha256(input);
+        } catch (IOException e) {
+            throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al leer el archivo.");
+        }
+    }
+
+    private static String sha256(InputStream input) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (DigestInputStream in = new DigestInputStream(input, digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.app.shopin.modules.media.service;
+
+import com.app.shopin.modules.media.entity.PendingMediaDeletion;
+import com.app.shopin.modules.media.repository.MediaObjectRepository;
+import com.app.shopin.modules.media.repository.PendingMediaDeletionRepository;
+import com.app.shopin.services.cloudinary.StorageService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Cola persistente (outbox) de borrados en el almacenamiento. Quien deja un archivo sin uso lo registra con
+ * {@link #enqueue} dentro de su propia transacción: si hace rollback el borrado no existe, y si confirma el borrado
+ * ya no se puede perder. Un worker toma lotes de la tabla, los borra agrupados por tipo con una llamada por lote y
+ * reintenta los fallidos con espera exponencial. El tamaño de la cola se publica como métrica.
+ */
+@Service
+public class MediaDeletionQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(MediaDeletionQueue.class);
+
+    // A partir de aquí cada fallo se registra como error: probablemente el archivo no se borrará sin intervención
+    private static final int ALERT_ATTEMPTS = 10;
+
+    @Autowired
+    private PendingMediaDeletionRepository pendingMediaDeletionRepository;
+    @Autowired
+    private MediaObjectRepository mediaObjectRepository;
+    @Autowired
+    private DeduplicatingStorageService deduplicatingStorageService;
+    // Las referencias ya se restaron al encolar: el worker habla directamente con el backend
+    @Autowired
+    @Qualifier("storageBackend")
+    private StorageService backend;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${media.deletion.batch-size:200}")
+    private int batchSize;
+    @Value("${media.deletion.lease:5m}")
+    private Duration lease;
+    @Value("${media.deletion.initial-backoff:30s}")
+    private Duration initialBackoff;
+    @Value("${media.deletion.max-backoff:6h}")
+    private Duration maxBackoff;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private Counter deletedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("shopin.media.deletion.backlog", backlog, AtomicLong::get)
+                .description("Archivos pendientes de borrar del almacenamiento")
+                .register(meterRegistry);
+        deletedCounter = Counter.builder("shopin.media.deletion.deleted")
+                .description("Archivos borrados del almacenamiento por la cola")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("shopin.media.deletion.failed")
+                .description("Intentos de borrado fallidos que se reintentarán")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registra el borrado de un archivo en la transacción actual. Si el contenido lo comparten otras referencias
+     * (ver {@link DeduplicatingStorageService}) solo se resta la referencia y no se encola nada.
+     */
+    @Transactional
+    public void enqueue(String publicId, String resourceType) {
+        if (publicId == null || publicId.isBlank()) return;
+        if (!deduplicatingStorageService.releaseReference(publicId)) {
+            return;
+        }
+        PendingMediaDeletion deletion = new PendingMediaDeletion();
+        deletion.setPublicId(publicId);
+        deletion.setResourceType(resourceType);
+        pendingMediaDeletionRepository.save(deletion);
+    }
+
+    /**
+     * Encola un objeto que nada referencia (lo encuentra la reconciliación). No hay referencia que restar: si quedaba
+     * una entrada sin referencias en el registro de contenido, se elimina con él.
+     */
+    @Transactional
+    public void enqueueOrphan(String publicId, String resourceType) {
+        mediaObjectRepository.deleteIfUnreferenced(publicId);
+        PendingMediaDeletion deletion = new PendingMediaDeletion();
+        deletion.setPublicId(publicId);
+        deletion.setResourceType(resourceType);
+        pendingMediaDeletionRepository.save(deletion);
+    }
+
+    @Scheduled(fixedDelayString = "${media.deletion.interval-ms:10000}")
+    public void drain() {
+        List<PendingMediaDeletion> claimed;
+        do {
+            LocalDateTime now = LocalDateTime.now();
+            claimed = transactionTemplate.execute(status ->
+                    pendingMediaDeletionRepository.claimDue(now, now.plus(lease), batchSize));
+            if (claimed.isEmpty()) {
+                break;
+            }
+            process(claimed);
+        } while (claimed.size() == batchSize);
+        backlog.set(pendingMediaDeletionRepository.count());
+    }
+
+    // Las llamadas remotas se hacen fuera de toda transacción; solo el resultado se escribe en una corta
+    private void process(List<PendingMediaDeletion> claimed) {
+        List<Long> deleted = new ArrayList<>();
+        List<PendingMediaDeletion> failed = new ArrayList<>();
+
+        Map<String, List<PendingMediaDeletion>> byType = claimed.stream()
+                .collect(Collectors.groupingBy(PendingMediaDeletion::getResourceType));
+        byType.forEach((resourceType, deletions) -> {
+            List<String> publicIds = deletions.stream().map(PendingMediaDeletion::getPublicId).distinct().toList();
+            Set<String> notDeleted;
+            String error;
+            try {
+                notDeleted = backend.deleteFiles(publicIds, resourceType);
+                error = "El almacenamiento no confirmó el borrado";
+            } catch (RuntimeException e) {
+                log.warn("Falló el borrado de {} archivos de tipo {}", publicIds.size(), resourceType, e);
+                notDeleted = Set.copyOf(publicIds);
+                error = e.getMessage();
+            }
+            for (PendingMediaDeletion deletion : deletions) {
+                if (notDeleted.contains(deletion.getPublicId())) {
+                    deletion.setLastError(error);
+                    failed.add(deletion);
+                } else {
+                    deleted.add(deletion.getId());
+                }
+            }
+        });
+
+        LocalDateTime now = LocalDateTime.now();
+        for (PendingMediaDeletion deletion : failed) {
+            int attempts = deletion.getAttempts() + 1;
+            deletion.setAttempts(attempts);
+            deletion.setNextAttemptAt(now.plus(backoff(attempts)));
+            if (attempts >= ALERT_ATTEMPTS) {
+                log.error("El archivo {} sigue sin borrarse tras {} intentos: {}",
+                        deletion.getPublicId(), attempts, deletion.getLastError());
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!deleted.isEmpty()) {
+                pendingMediaDeletionRepository.deleteByIdIn(deleted);
+            }
+            pendingMediaDeletionRepository.saveAll(failed);
+        });
+        deletedCounter.increment(deleted.size());
+        failedCounter.increment(failed.size());
+    }
+
+    // 30s, 1m, 2m, 4m... hasta maxBackoff
+    private Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+}
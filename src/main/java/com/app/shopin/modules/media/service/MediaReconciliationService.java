@@ -0,0 +1,354 @@
+package com.app.shopin.modules.media.service;
+
+import com.app.shopin.modules.exception.CustomException;
+import com.app.shopin.modules.media.dto.MediaReconciliationReportDTO;
+import com.app.shopin.services.cloudinary.StorageService;
+import com.app.shopin.services.cloudinary.StoredObject;
+import com.app.shopin.services.cloudinary.StoredObjectPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reconciliación entre el almacenamiento y la base de datos. Por cada carpeta que escribe la aplicación recorre a la
+ * vez, por páginas y ordenados por publicId, los objetos guardados y los publicId referenciados (multimedia de
+ * productos, fotos de perfil, el registro de contenido y la cola de borrados), y los compara con un merge join:
+ * una pasada por cada lista sin una consulta por objeto.
+ * Un objeto sin referencia y más antiguo que el periodo de gracia es huérfano. En modo dry-run solo se informa;
+ * si no, se pasa a la cola de borrados, con un máximo por ejecución y una pausa entre páginas del listado para no
+ * agotar el límite de la API del almacenamiento. Las referencias cuyo objeto no existe también se informan.
+ */
+@Service
+public class MediaReconciliationService {
+
+    private static final Logger log = LoggerFactory.getLogger(MediaReconciliationService.class);
+
+    private static final int SAMPLE_SIZE = 100;
+    private static final int ENQUEUE_BATCH_SIZE = 100;
+
+    // Carpetas que escribe la aplicación y el tipo de objeto que se lista en cada una
+    private record Scope(String folder, String resourceType) {}
+
+    private static final List<Scope> SCOPES = List.of(
+            new Scope("products", "image"),
+            new Scope("products", "video"),
+            new Scope("profileimages", "image"));
+
+    // Todo publicId que algo usa o que ya está en camino de borrarse; COLLATE "C" para ordenar igual que String
+    private static final String REFERENCES_SQL = """
+            SELECT public_id FROM (
+                SELECT public_id FROM product_media WHERE public_id IS NOT NULL AND lower(media_type) = :type
+                UNION SELECT profile_picture_public_id FROM users
+                      WHERE profile_picture_public_id IS NOT NULL AND :type = 'image'
+                UNION SELECT public_id FROM media_objects WHERE ref_count > 0 AND resource_type = :type
+                UNION SELECT public_id FROM pending_media_deletions WHERE resource_type = :type
+            ) refs
+            """;
+
+    private static final String REFERENCES_PAGE_SQL = REFERENCES_SQL + """
+            WHERE public_id LIKE :prefix AND public_id COLLATE "C" > :after
+            ORDER BY public_id COLLATE "C"
+            LIMIT :limit
+            """;
+
+    private static final String REFERENCED_AMONG_SQL = REFERENCES_SQL + "WHERE public_id IN (:ids)";
+
+    @Autowired
+    private StorageService storageService;
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+    @Autowired
+    private MediaDeletionQueue mediaDeletionQueue;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${media.reconciliation.dry-run:true}")
+    private boolean scheduledDryRun;
+    @Value("${media.reconciliation.grace-period:24h}")
+    private Duration gracePeriod;
+    @Value("${media.reconciliation.page-size:500}")
+    private int pageSize;
+    @Value("${media.reconciliation.max-deletions-per-run:1000}")
+    private int maxDeletionsPerRun;
+    @Value("${media.reconciliation.list-interval:1s}")
+    private Duration listInterval;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile MediaReconciliationReportDTO lastReport;
+
+    @Scheduled(cron = "${media.reconciliation.cron:0 30 4 * * ?}")
+    public void scheduledReconcile() {
+        try {
+            reconcile(scheduledDryRun);
+        } catch (CustomException e) {
+            log.warn("Reconciliación de multimedia omitida: {}", e.getMessage());
+        }
+    }
+
+    public MediaReconciliationReportDTO reconcile(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            throw new CustomException(HttpStatus.CONFLICT, "Ya hay una reconciliación de multimedia en curso.");
+        }
+        try {
+            Run run = new Run(dryRun);
+            try {
+                for (Scope scope : SCOPES) {
+                    scan(run, scope);
+                }
+                run.flush();
+            } catch (RuntimeException e) {
+                // Lo ya encolado se verificó antes de encolarlo: interrumpir a mitad es seguro
+                log.error("Reconciliación de multimedia interrumpida", e);
+                run.abortedReason = e.getMessage();
+            }
+            MediaReconciliationReportDTO report = run.report();
+            lastReport = report;
+            log.info("Reconciliación de multimedia (dryRun={}): {} objetos, {} huérfanos, {} encolados, {} referencias sin objeto",
+                    dryRun, report.scanned(), report.orphans(), report.queuedForDeletion(), report.missing());
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Optional<MediaReconciliationReportDTO> getLastReport() {
+        return Optional.ofNullable(lastReport);
+    }
+
+    // --- MERGE JOIN ---
+
+    private void scan(Run run, Scope scope) {
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        StoredObjects stored = new StoredObjects(scope);
+        References references = new References(scope);
+
+        while (stored.peek() != null) {
+            StoredObject object = stored.next();
+            run.scanned++;
+            while (references.peek() != null && references.peek().compareTo(object.publicId()) < 0) {
+                run.missing(references.next());
+            }
+            if (object.publicId().equals(references.peek())) {
+                references.next();
+                run.referenced++;
+            } else if (object.createdAt().isAfter(cutoff)) {
+                run.skippedRecent++;
+            } else {
+                run.orphan(object);
+            }
+        }
+        while (references.peek() != null) {
+            run.missing(references.next());
+        }
+    }
+
+    /**
+     * Secuencia ordenada leída por páginas: la siguiente página se pide solo cuando se agota la actual.
+     * Comprueba que el orden sea estrictamente creciente; si no, el merge join daría huérfanos falsos y se aborta.
+     */
+    private abstract static class SortedPages<T> {
+
+        private Iterator<T> page = Collections.emptyIterator();
+        private T head;
+        private String lastKey;
+        private boolean exhausted;
+
+        protected abstract List<T> fetchNextPage();
+
+        protected abstract String key(T item);
+
+        T peek() {
+            if (head == null && !exhausted) {
+                advance();
+            }
+            return head;
+        }
+
+        T next() {
+            T item = peek();
+            head = null;
+            return item;
+        }
+
+        private void advance() {
+            if (!page.hasNext()) {
+                List<T> items = fetchNextPage();
+                if (items.isEmpty()) {
+                    exhausted = true;
+                    return;
+                }
+                page = items.iterator();
+            }
+            head = page.next();
+            String key = key(head);
+            if (lastKey != null && key.compareTo(lastKey) <= 0) {
+                throw new IllegalStateException("Listado fuera de orden: " + key + " después de " + lastKey);
+            }
+            lastKey = key;
+        }
+    }
+
+    private class StoredObjects extends SortedPages<StoredObject> {
+
+        private final Scope scope;
+        private String cursor;
+        private boolean started;
+
+        StoredObjects(Scope scope) {
+            this.scope = scope;
+        }
+
+        @Override
+        protected List<StoredObject> fetchNextPage() {
+            while (!started || cursor != null) {
+                if (started) {
+                    pause();
+                }
+                started = true;
+                StoredObjectPage page = storageService.listObjects(scope.folder(), scope.resourceType(), cursor, pageSize);
+                cursor = page.nextCursor();
+                if (!page.objects().isEmpty()) {
+                    return page.objects();
+                }
+            }
+            return List.of();
+        }
+
+        @Override
+        protected String key(StoredObject item) {
+            return item.publicId();
+        }
+    }
+
+    private class References extends SortedPages<String> {
+
+        private final Scope scope;
+        private String after = "";
+
+        References(Scope scope) {
+            this.scope = scope;
+        }
+
+        @Override
+        protected List<String> fetchNextPage() {
+            List<String> ids = namedJdbcTemplate.queryForList(REFERENCES_PAGE_SQL, new MapSqlParameterSource()
+                    .addValue("type", scope.resourceType())
+                    .addValue("prefix", scope.folder() + "/%")
+                    .addValue("after", after)
+                    .addValue("limit", pageSize), String.class);
+            if (!ids.isEmpty()) {
+                after = ids.getLast();
+            }
+            return ids;
+        }
+
+        @Override
+        protected String key(String item) {
+            return item;
+        }
+    }
+
+    // Límite de ritmo del listado: las APIs de administración del almacenamiento tienen cuota por hora
+    private void pause() {
+        try {
+            Thread.sleep(listInterval.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reconciliación interrumpida");
+        }
+    }
+
+    // --- RESULTADO DE UNA EJECUCIÓN ---
+
+    private class Run {
+
+        final boolean dryRun;
+        final LocalDateTime startedAt = LocalDateTime.now();
+        long scanned;
+        long referenced;
+        long skippedRecent;
+        long orphans;
+        long queued;
+        long missing;
+        final List<String> orphanSample = new ArrayList<>();
+        final List<String> missingSample = new ArrayList<>();
+        final List<StoredObject> pending = new ArrayList<>();
+        String abortedReason;
+
+        Run(boolean dryRun) {
+            this.dryRun = dryRun;
+        }
+
+        void orphan(StoredObject object) {
+            orphans++;
+            if (orphanSample.size() < SAMPLE_SIZE) {
+                orphanSample.add(object.publicId());
+            }
+            if (!dryRun && queued + pending.size() < maxDeletionsPerRun) {
+                pending.add(object);
+                if (pending.size() >= ENQUEUE_BATCH_SIZE) {
+                    flush();
+                }
+            }
+        }
+
+        void missing(String publicId) {
+            missing++;
+            if (missingSample.size() < SAMPLE_SIZE) {
+                missingSample.add(publicId);
+            }
+        }
+
+        // Se vuelve a comprobar el lote con una consulta: algo pudo referenciarlo después de leer esa página
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<StoredObject> batch = List.copyOf(pending);
+            pending.clear();
+            Integer enqueued = transactionTemplate.execute(status -> {
+                int count = 0;
+                for (String resourceType : batch.stream().map(StoredObject::resourceType).distinct().toList()) {
+                    List<String> ids = batch.stream()
+                            .filter(object -> object.resourceType().equals(resourceType))
+                            .map(StoredObject::publicId)
+                            .toList();
+                    Set<String> stillReferenced = new HashSet<>(namedJdbcTemplate.queryForList(REFERENCED_AMONG_SQL,
+                            new MapSqlParameterSource().addValue("type", resourceType).addValue("ids", ids), String.class));
+                    for (String publicId : ids) {
+                        if (!stillReferenced.contains(publicId)) {
+                            mediaDeletionQueue.enqueueOrphan(publicId, resourceType);
+                            count++;
+                        }
+                    }
+                }
+                return count;
+            });
+            queued += enqueued != null ? enqueued : 0;
+        }
+
+        MediaReconciliationReportDTO report() {
+            return new MediaReconciliationReportDTO(startedAt, LocalDateTime.now(), dryRun, scanned, referenced,
+                    skippedRecent, orphans, queued, missing, orphanSample, missingSample, abortedReason);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.app.shopin.modules.pricing.controller;
+
+import com.app.shopin.modules.pricing.dto.PriceQuoteDTO;
+import com.app.shopin.modules.pricing.dto.PriceQuoteRequestDTO;
+import com.app.shopin.modules.pricing.service.PriceQuoteService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/pricing")
+public class PricingController {
+
+    @Autowired
+    private PriceQuoteService priceQuoteService;
+
+    // Pública, como el catálogo: devuelve los mismos precios que se ven en el detalle de cada producto
+    @PostMapping("/quote")
+    public ResponseEntity<PriceQuoteDTO> quote(@Valid @RequestBody PriceQuoteRequestDTO request) {
+        return ResponseEntity.ok(priceQuoteService.quote(request));
+    }
+}
@@ -0,0 +1,10 @@
+package com.app.shopin.modules.pricing.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public record PriceQuoteDTO(
+        List<PriceQuoteLineDTO> lines,
+        BigDecimal total,
+        List<Long> unavailableProductIds // No existen o están borrados: no suman al total
+) {}
@@ -0,0 +1,16 @@
+package com.app.shopin.modules.pricing.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+public record PriceQuoteItemDTO(
+        @NotNull Long productId,
+        @Min(1)
+        @Max(value = PriceQuoteItemDTO.MAX_QUANTITY,
+                message = "No se pueden cotizar más de " + PriceQuoteItemDTO.MAX_QUANTITY + " unidades de un producto")
+        int quantity
+) {
+    // También se aplica a la suma de un producto repetido en la misma petición
+    public static final int MAX_QUANTITY = 10_000;
+}
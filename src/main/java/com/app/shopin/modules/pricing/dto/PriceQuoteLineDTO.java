@@ -0,0 +1,13 @@
+package com.app.shopin.modules.pricing.dto;
+
+import java.math.BigDecimal;
+
+public record PriceQuoteLineDTO(
+        Long productId,
+        String productName,
+        int quantity,
+        BigDecimal originalPrice,
+        Integer discountPercent,
+        BigDecimal unitPrice,
+        BigDecimal lineTotal
+) {}
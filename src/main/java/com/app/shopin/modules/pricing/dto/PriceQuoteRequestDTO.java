@@ -0,0 +1,14 @@
+package com.app.shopin.modules.pricing.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record PriceQuoteRequestDTO(
+        @NotEmpty(message = "Debe indicar al menos un producto")
+        @Size(max = 200, message = "No se pueden cotizar más de 200 productos a la vez")
+        List<@Valid @NotNull PriceQuoteItemDTO> items
+) {}
@@ -0,0 +1,28 @@
+package com.app.shopin.modules.pricing.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Reglas de cálculo de precios compartidas por productos, carrito y cotizaciones.
+public final class PriceCalculator {
+
+    private static final BigDecimal ONE_HUNDRED = BigDecimal.valueOf(100);
+
+    private PriceCalculator() {
+    }
+
+    public static BigDecimal applyDiscount(BigDecimal price, int discountPercent) {
+        if (price == null || discountPercent <= 0) {
+            return price;
+        }
+        BigDecimal discountMultiplier = BigDecimal.valueOf(100 - discountPercent).divide(ONE_HUNDRED);
+        return price.multiply(discountMultiplier).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    public static BigDecimal lineTotal(BigDecimal unitPrice, int quantity) {
+        if (unitPrice == null) {
+            return BigDecimal.ZERO;
+        }
+        return unitPrice.multiply(BigDecimal.valueOf(quantity));
+    }
+}
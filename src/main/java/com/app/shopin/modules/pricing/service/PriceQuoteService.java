@@ -0,0 +1,85 @@
+package com.app.shopin.modules.pricing.service;
+
+import com.app.shopin.modules.exception.CustomException;
+import com.app.shopin.modules.pricing.dto.PriceQuoteDTO;
+import com.app.shopin.modules.pricing.dto.PriceQuoteItemDTO;
+import com.app.shopin.modules.pricing.dto.PriceQuoteLineDTO;
+import com.app.shopin.modules.pricing.dto.PriceQuoteRequestDTO;
+import com.app.shopin.modules.product.dto.ProductPricing;
+import com.app.shopin.modules.product.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cotiza muchos productos a la vez (vistas previas de carrito, listas de deseos, comparadores) con una sola
+ * consulta ligera, en lugar de una petición de detalle por producto.
+ * Usa el mismo precio efectivo persistido que el detalle y el carrito, y las mismas reglas de PriceCalculator.
+ */
+@Service
+public class PriceQuoteService {
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PricingService pricingService;
+
+    @Transactional(readOnly = true)
+    public PriceQuoteDTO quote(PriceQuoteRequestDTO request) {
+        // Un mismo producto repetido se cotiza en una sola línea con la cantidad sumada, en el orden de la petición
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (PriceQuoteItemDTO item : request.items()) {
+            int quantity = quantities.merge(item.productId(), item.quantity(), Integer::sum);
+            if (quantity > PriceQuoteItemDTO.MAX_QUANTITY) {
+                throw new CustomException(HttpStatus.BAD_REQUEST, "No se pueden cotizar más de "
+                        + PriceQuoteItemDTO.MAX_QUANTITY + " unidades del producto " + item.productId() + ".");
+            }
+        }
+
+        Map<Long, ProductPricing> productsById = productRepository.findPricingByIdIn(quantities.keySet()).stream()
+                .collect(Collectors.toMap(ProductPricing::id, Function.identity()));
+
+        List<PriceQuoteLineDTO> lines = new ArrayList<>(productsById.size());
+        List<Long> unavailableProductIds = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            ProductPricing product = productsById.get(entry.getKey());
+            if (product == null) {
+                unavailableProductIds.add(entry.getKey());
+                continue;
+            }
+            PriceQuoteLineDTO line = quoteLine(product, entry.getValue());
+            lines.add(line);
+            total = total.add(line.lineTotal());
+        }
+        return new PriceQuoteDTO(lines, total, unavailableProductIds);
+    }
+
+    private PriceQuoteLineDTO quoteLine(ProductPricing product, int quantity) {
+        BigDecimal unitPrice = product.effectivePrice();
+        Integer discountPercent = product.effectiveDiscountPercent();
+        if (unitPrice == null) {
+            // Fila aún sin calcular: misma resolución con el índice que PricingService.effectivePrice
+            discountPercent = pricingService.currentDiscount(product.id(), product.categoryId(), product.discountPercent());
+            unitPrice = PriceCalculator.applyDiscount(product.price(), discountPercent);
+        }
+        return new PriceQuoteLineDTO(
+                product.id(),
+                product.name(),
+                quantity,
+                product.price(),
+                discountPercent,
+                unitPrice,
+                PriceCalculator.lineTotal(unitPrice, quantity)
+        );
+    }
+}
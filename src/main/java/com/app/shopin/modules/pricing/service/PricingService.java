@@ -0,0 +1,254 @@
+package com.app.shopin.modules.pricing.service;
+
+import com.app.shopin.modules.product.entity.Product;
+import com.app.shopin.modules.product.repository.ProductRepository;
+import com.app.shopin.modules.product.service.CategoryTree;
+import com.app.shopin.modules.product.service.CategoryTreeCache;
+import com.app.shopin.modules.product.service.ProductDetailCache;
+import com.app.shopin.modules.promotion.repository.PromotionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Mantiene las columnas effective_price / effective_discount_percent de los productos.
+ * Se recalcula cuando cambia un precio, un descuento, una promoción o el árbol de categorías, y cuando una
+ * promoción entra o sale de su ventana de vigencia (en el momento exacto, vía {@link PromotionTransitionScheduler});
+ * las lecturas nunca calculan el precio.
+ * El mejor descuento de promoción (del producto o de su categoría y ancestros) lo resuelve {@link PromotionIndex}.
+ */
+@Service
+public class PricingService {
+
+    private static final Logger log = LoggerFactory.getLogger(PricingService.class);
+
+    // Límite de parámetros por sentencia al recalcular listas grandes de productos
+    private static final int RECALCULATION_CHUNK_SIZE = 1000;
+    // Prefijo de la clave de los bloqueos consultivos de PostgreSQL usados por las transiciones de promociones
+    private static final String TRANSITION_LOCK_PREFIX = "promotion-transition:";
+
+    private static final String PRICING_COLUMNS =
+            "SELECT id, price, discount_percent, category_id, effective_price, effective_discount_percent FROM products ";
+    private static final String UPDATE_EFFECTIVE_PRICE =
+            "UPDATE products SET effective_price = :effectivePrice, effective_discount_percent = :discount,"
+                    + " updated_at = :now WHERE id = :id";
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PromotionRepository promotionRepository;
+    @Autowired
+    private ProductDetailCache productDetailCache;
+    @Autowired
+    private PromotionIndexService promotionIndexService;
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    // Fin de la última ventana revisada por el job de vigencias
+    private volatile LocalDateTime lastBoundaryCheck = LocalDateTime.now();
+
+    // Columnas de una fila necesarias para calcular su precio efectivo
+    private record PricingRow(long id, BigDecimal price, Integer discountPercent, Long categoryId,
+                              BigDecimal effectivePrice, Integer effectiveDiscountPercent) {}
+
+    // Para entidades ya cargadas (alta/edición de producto): se calcula en memoria antes de guardar
+    public void applyEffectivePrice(Product product) {
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        product.applyPromotionDiscount(promotionIndexService.bestDiscount(product.getId(), categoryId));
+    }
+
+    /**
+     * Precio de venta para las lecturas: el persistido. Una fila aún sin calcular (anterior a la columna, hasta que
+     * recalculateAll la rellena al arrancar) se resuelve con el índice de promociones sin modificar la entidad,
+     * para que una lectura nunca la marque como sucia.
+     */
+    public BigDecimal effectivePrice(Product product) {
+        if (product.getEffectivePrice() != null) {
+            return product.getEffectivePrice();
+        }
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        return PriceCalculator.applyDiscount(product.getPrice(),
+                currentDiscount(product.getId(), categoryId, product.getDiscountPercent()));
+    }
+
+    // Mejor descuento vigente ahora: el propio o el de sus promociones (del producto o de su categoría y ancestros)
+    public int currentDiscount(Long productId, Long categoryId, Integer ownDiscount) {
+        int own = ownDiscount != null ? ownDiscount : 0;
+        return Math.max(own, promotionIndexService.bestDiscount(productId, categoryId));
+    }
+
+    @Transactional
+    public int recalculateProducts(Collection<Long> productIds) {
+        return recalculateProducts(productIds, LocalDateTime.now());
+    }
+
+    @Transactional
+    public int recalculatePromotionProducts(Long promotionId) {
+        Set<Long> productIds = new HashSet<>(promotionRepository.findProductIdsByPromotionId(promotionId));
+        productIds.addAll(productIdsInCategories(promotionRepository.findCategoryIdsByPromotionId(promotionId)));
+        return recalculateProducts(productIds);
+    }
+
+    // Productos de las categorías indicadas y de todas sus subcategorías
+    @Transactional(readOnly = true)
+    public Set<Long> productIdsInCategories(Collection<Long> categoryIds) {
+        if (categoryIds == null || categoryIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        CategoryTree tree = categoryTreeCache.get();
+        Set<Long> subtreeIds = new HashSet<>();
+        categoryIds.forEach(categoryId -> subtreeIds.addAll(tree.subtreeIds(categoryId)));
+        return new HashSet<>(productRepository.findIdsByCategoryIdIn(subtreeIds));
+    }
+
+    /**
+     * Tras mover una categoría cambian las promociones heredadas de sus ancestros. Se ejecuta después del commit
+     * (con el árbol nuevo ya publicado), así que necesita su propia transacción.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int recalculateCategorySubtree(Long categoryId) {
+        return recalculateProducts(productIdsInCategories(Set.of(categoryId)));
+    }
+
+    // Al arrancar se corrigen filas sin calcular (o desfasadas por promociones vencidas con la app detenida)
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void recalculateAll() {
+        LocalDateTime now = LocalDateTime.now();
+        PromotionIndex index = promotionIndexService.build();
+        CategoryTree tree = categoryTreeCache.get();
+        int updated = 0;
+        long afterId = 0;
+        List<PricingRow> rows;
+        do {
+            // Por keyset: nunca se cargan todos los productos a la vez
+            rows = namedJdbcTemplate.query(PRICING_COLUMNS + "WHERE id > :afterId ORDER BY id LIMIT :limit",
+                    new MapSqlParameterSource("afterId", afterId).addValue("limit", RECALCULATION_CHUNK_SIZE),
+                    (rs, rowNum) -> mapRow(rs));
+            updated += updateChanged(rows, index, tree, now);
+            if (!rows.isEmpty()) {
+                afterId = rows.get(rows.size() - 1).id();
+            }
+        } while (rows.size() == RECALCULATION_CHUNK_SIZE);
+        productDetailCache.clear();
+        lastBoundaryCheck = now;
+        log.info("Precios efectivos recalculados: {} productos actualizados", updated);
+    }
+
+    /**
+     * Inicio o fin exacto de una promoción, entregado por PromotionTransitionScheduler. Todas las instancias lo
+     * tienen programado y lo reciben casi a la vez: un bloqueo consultivo por promoción las pone en fila, la
+     * primera escribe los precios y las demás, al entrar tras su commit, no encuentran filas que cambiar
+     * (updateChanged solo escribe diferencias). Su pasada queda en una lectura de los productos afectados,
+     * que además invalida la caché de detalle local de cada instancia.
+     */
+    @EventListener
+    @Transactional
+    public void onPromotionTransition(PromotionTransitionScheduler.TransitionEvent event) {
+        // Clave bigint derivada del id completo: la forma de dos enteros desbordaba con ids mayores que 2^31
+        namedJdbcTemplate.queryForObject(
+                "SELECT pg_advisory_xact_lock(hashtextextended(:prefix || CAST(:promotionId AS text), 0))",
+                new MapSqlParameterSource("prefix", TRANSITION_LOCK_PREFIX).addValue("promotionId", event.promotionId()),
+                String.class);
+        int updated = recalculatePromotionProducts(event.promotionId());
+        log.info("{} de la promoción {}: {} precios efectivos actualizados",
+                event.kind(), event.promotionId(), updated);
+    }
+
+    /**
+     * Red de seguridad de los cambios de vigencia: el programador vive en memoria de cada instancia y no ve
+     * las promociones escritas desde otra. Revisa promociones que empiezan o terminan entre dos ejecuciones,
+     * así que su intervalo es el retraso máximo de esos casos.
+     */
+    @Scheduled(fixedDelayString = "${pricing.boundary-check-ms:60000}")
+    @Transactional
+    public void applyPromotionBoundaries() {
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> productIds = new HashSet<>(promotionRepository.findProductIdsWithBoundaryBetween(lastBoundaryCheck, now));
+        productIds.addAll(productIdsInCategories(promotionRepository.findCategoryIdsWithBoundaryBetween(lastBoundaryCheck, now)));
+        if (!productIds.isEmpty()) {
+            int updated = recalculateProducts(productIds, now);
+            log.info("Cambio de vigencia de promociones: {} precios efectivos actualizados", updated);
+        }
+        lastBoundaryCheck = now;
+    }
+
+    private int recalculateProducts(Collection<Long> productIds, LocalDateTime now) {
+        if (productIds == null || productIds.isEmpty()) {
+            return 0;
+        }
+        // Las filas se leen por JDBC: primero se envían los cambios pendientes de la transacción
+        productRepository.flush();
+        // Índice leído en esta transacción: incluye las promociones que se acaban de modificar
+        PromotionIndex index = promotionIndexService.build();
+        CategoryTree tree = categoryTreeCache.get();
+
+        List<Long> ids = new ArrayList<>(productIds);
+        int updated = 0;
+        for (int from = 0; from < ids.size(); from += RECALCULATION_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + RECALCULATION_CHUNK_SIZE, ids.size()));
+            List<PricingRow> rows = namedJdbcTemplate.query(PRICING_COLUMNS + "WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", chunk), (rs, rowNum) -> mapRow(rs));
+            updated += updateChanged(rows, index, tree, now);
+        }
+        productDetailCache.evictAll(ids);
+        return updated;
+    }
+
+    // Solo se escriben las filas cuyo precio o descuento efectivo cambia
+    private int updateChanged(List<PricingRow> rows, PromotionIndex index, CategoryTree tree, LocalDateTime now) {
+        List<MapSqlParameterSource> changes = new ArrayList<>();
+        for (PricingRow row : rows) {
+            int ownDiscount = row.discountPercent() != null ? row.discountPercent() : 0;
+            int discount = Math.max(ownDiscount, index.bestDiscount(row.id(), row.categoryId(), tree, now));
+            BigDecimal effectivePrice = PriceCalculator.applyDiscount(row.price(), discount);
+            if (!Objects.equals(row.effectiveDiscountPercent(), discount)
+                    || !sameAmount(row.effectivePrice(), effectivePrice)) {
+                changes.add(new MapSqlParameterSource("id", row.id())
+                        .addValue("effectivePrice", effectivePrice)
+                        .addValue("discount", discount)
+                        .addValue("now", Timestamp.valueOf(now)));
+            }
+        }
+        if (!changes.isEmpty()) {
+            namedJdbcTemplate.batchUpdate(UPDATE_EFFECTIVE_PRICE, changes.toArray(MapSqlParameterSource[]::new));
+        }
+        return changes.size();
+    }
+
+    private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    private static PricingRow mapRow(ResultSet rs) throws SQLException {
+        return new PricingRow(
+                rs.getLong("id"),
+                rs.getBigDecimal("price"),
+                rs.getObject("discount_percent", Integer.class),
+                rs.getObject("category_id", Long.class),
+                rs.getBigDecimal("effective_price"),
+                rs.getObject("effective_discount_percent", Integer.class));
+    }
+}
@@ -0,0 +1,89 @@
+package com.app.shopin.modules.pricing.service;
+
+import com.app.shopin.modules.product.service.CategoryTree;
+import com.app.shopin.modules.promotion.dto.PromotionTarget;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Instantánea inmutable de las promociones habilitadas, indexadas por producto y por categoría.
+ * Cada entrada conserva su ventana de vigencia, así que la instantánea sigue siendo válida cuando una promoción
+ * empieza o termina: solo hay que reconstruirla cuando cambian las promociones.
+ * Una promoción de categoría se aplica también a sus subcategorías: se resuelve subiendo por los ancestros
+ * de la categoría del producto en el árbol en memoria (una búsqueda por nivel).
+ */
+public final class PromotionIndex {
+
+    private record Window(int discountPercent, LocalDateTime startDate, LocalDateTime endDate) {
+
+        boolean isActiveAt(LocalDateTime now) {
+            return (startDate == null || !now.isBefore(startDate)) && (endDate == null || !now.isAfter(endDate));
+        }
+    }
+
+    private final Map<Long, List<Window>> byProduct;
+    private final Map<Long, List<Window>> byCategory;
+
+    private PromotionIndex(Map<Long, List<Window>> byProduct, Map<Long, List<Window>> byCategory) {
+        this.byProduct = byProduct;
+        this.byCategory = byCategory;
+    }
+
+    public static PromotionIndex build(Collection<PromotionTarget> productTargets,
+                                       Collection<PromotionTarget> categoryTargets) {
+        return new PromotionIndex(group(productTargets), group(categoryTargets));
+    }
+
+    private static Map<Long, List<Window>> group(Collection<PromotionTarget> targets) {
+        Map<Long, List<Window>> grouped = new HashMap<>();
+        for (PromotionTarget target : targets) {
+            if (target.discountPercent() == null || target.discountPercent() <= 0) {
+                continue;
+            }
+            grouped.computeIfAbsent(target.targetId(), id -> new ArrayList<>())
+                    .add(new Window(target.discountPercent(), target.startDate(), target.endDate()));
+        }
+        Map<Long, List<Window>> frozen = new HashMap<>();
+        grouped.forEach((id, windows) -> frozen.put(id, List.copyOf(windows)));
+        return Map.copyOf(frozen);
+    }
+
+    /**
+     * Mayor porcentaje de las promociones vigentes en {@code now} para el producto: las suyas y las de su
+     * categoría o de cualquiera de sus ancestros. 0 si no hay ninguna.
+     */
+    public int bestDiscount(Long productId, Long categoryId, CategoryTree tree, LocalDateTime now) {
+        int best = productId != null ? bestOf(byProduct.get(productId), now) : 0;
+        Long current = categoryId;
+        // El límite de pasos protege de un ciclo en una instantánea del árbol a medio actualizar
+        for (int steps = 0; current != null && steps <= tree.size(); steps++) {
+            best = Math.max(best, bestOf(byCategory.get(current), now));
+            Optional<CategoryTree.Node> node = tree.find(current);
+            current = node.map(CategoryTree.Node::parentId).orElse(null);
+        }
+        return best;
+    }
+
+    public int size() {
+        return byProduct.size() + byCategory.size();
+    }
+
+    private static int bestOf(List<Window> windows, LocalDateTime now) {
+        if (windows == null) {
+            return 0;
+        }
+        int best = 0;
+        for (Window window : windows) {
+            if (window.discountPercent() > best && window.isActiveAt(now)) {
+                best = window.discountPercent();
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,86 @@
+package com.app.shopin.modules.pricing.service;
+
+import com.app.shopin.modules.product.service.CategoryTreeCache;
+import com.app.shopin.modules.promotion.repository.PromotionRepository;
+import com.app.shopin.util.TransactionUtils;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Mantiene la instantánea vigente del índice de promociones, igual que {@link CategoryTreeCache} con el árbol:
+ * las escrituras de PromotionService publican un índice nuevo tras el commit y las lecturas no se bloquean.
+ * Los recálculos dentro de una transacción que modifica promociones usan {@link #build()}, que ve sus cambios.
+ */
+@Component
+public class PromotionIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(PromotionIndexService.class);
+
+    @Autowired
+    private PromotionRepository promotionRepository;
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicReference<PromotionIndex> current = new AtomicReference<>();
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("shopin.pricing.promotion.index.size", this, index -> index.get().size())
+                .description("Productos y categorías con alguna promoción en el índice en memoria")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    public PromotionIndex get() {
+        PromotionIndex index = current.get();
+        if (index == null) {
+            synchronized (this) {
+                index = current.get();
+                if (index == null) {
+                    index = rebuild();
+                }
+            }
+        }
+        return index;
+    }
+
+    // Mejor descuento de promoción vigente ahora para un producto, con la instantánea publicada
+    public int bestDiscount(Long productId, Long categoryId) {
+        return get().bestDiscount(productId, categoryId, categoryTreeCache.get(), LocalDateTime.now());
+    }
+
+    // Lee las promociones con la transacción actual, sin publicar el resultado
+    public PromotionIndex build() {
+        LocalDateTime now = LocalDateTime.now();
+        return PromotionIndex.build(promotionRepository.findProductTargets(now),
+                promotionRepository.findCategoryTargets(now));
+    }
+
+    public synchronized PromotionIndex rebuild() {
+        PromotionIndex index = build();
+        current.set(index);
+        log.debug("Índice de promociones reconstruido: {} entradas", index.size());
+        return index;
+    }
+
+    // Se invoca desde las escrituras: la nueva versión se publica solo si la transacción confirma
+    public void invalidate() {
+        TransactionUtils.afterCommit(this::rebuild);
+    }
+}
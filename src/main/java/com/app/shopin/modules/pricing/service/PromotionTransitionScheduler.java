@@ -0,0 +1,187 @@
+package com.app.shopin.modules.pricing.service;
+
+import com.app.shopin.modules.promotion.entity.Promotion;
+import com.app.shopin.modules.promotion.repository.PromotionRepository;
+import com.app.shopin.util.TransactionUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Programa el inicio y el fin de cada promoción en una {@link TimingWheel} y, al llegar cada uno, publica un
+ * {@link TransitionEvent} para que se recalculen los precios afectados en ese momento (con la precisión de un tick)
+ * en lugar de esperar a la siguiente revisión periódica.
+ * Los registros viven en memoria: se cargan al arrancar y PromotionService los rehace tras cada escritura. Una
+ * promoción escrita desde otra instancia no llega a esta rueda hasta el siguiente arranque; para esas sigue
+ * mandando la revisión periódica de PricingService.
+ * El tick solo avanza la rueda; la entrega (que recalcula precios) va a un hilo propio para no retener el
+ * planificador que comparten los demás jobs.
+ */
+@Component
+public class PromotionTransitionScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(PromotionTransitionScheduler.class);
+
+    public enum Kind { START, END }
+
+    public record TransitionEvent(Long promotionId, Kind kind, LocalDateTime at) {}
+
+    @Autowired
+    private PromotionRepository promotionRepository;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${pricing.transitions.tick-ms:1000}")
+    private long tickMillis;
+    @Value("${pricing.transitions.wheel-size:4096}")
+    private int wheelSize;
+
+    private TimingWheel<TransitionEvent> wheel;
+    // Un solo hilo: las transiciones se aplican en el orden en que vencen
+    private ExecutorService deliveryExecutor;
+    // Vencimientos vivos de cada promoción, para cancelarlos al volver a registrarla
+    private final Map<Long, List<TimingWheel.Timeout<TransitionEvent>>> registrations = new HashMap<>();
+    private Counter firedTransitions;
+
+    @PostConstruct
+    void init() {
+        wheel = new TimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+        deliveryExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "promotion-transitions"));
+        Gauge.builder("shopin.pricing.transitions.pending", this, scheduler -> scheduler.pending())
+                .description("Inicios y fines de promoción programados")
+                .register(meterRegistry);
+        firedTransitions = Counter.builder("shopin.pricing.transitions.fired")
+                .description("Cambios de vigencia de promociones entregados")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        deliveryExecutor.shutdown();
+        if (!deliveryExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Cambios de vigencia sin aplicar al apagar: los recoge la revisión periódica");
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerOnStartup() {
+        List<Promotion> promotions = promotionRepository.findWithUpcomingBoundary(LocalDateTime.now());
+        promotions.forEach(this::register);
+        log.info("Cambios de vigencia programados para {} promociones", promotions.size());
+    }
+
+    // Se invoca desde las escrituras: el registro solo cambia si la transacción confirma
+    public void registerAfterCommit(Promotion promotion) {
+        Long promotionId = promotion.getId();
+        boolean enabled = promotion.isActive() && promotion.getDeletedAt() == null;
+        LocalDateTime startDate = promotion.getStartDate();
+        LocalDateTime endDate = promotion.getEndDate();
+        TransactionUtils.afterCommit(() -> register(promotionId, enabled, startDate, endDate));
+    }
+
+    public void cancelAfterCommit(Long promotionId) {
+        TransactionUtils.afterCommit(() -> cancel(promotionId));
+    }
+
+    public void register(Promotion promotion) {
+        register(promotion.getId(), promotion.isActive() && promotion.getDeletedAt() == null,
+                promotion.getStartDate(), promotion.getEndDate());
+    }
+
+    private synchronized void register(Long promotionId, boolean enabled, LocalDateTime startDate, LocalDateTime endDate) {
+        cancel(promotionId);
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<TimingWheel.Timeout<TransitionEvent>> timeouts = new ArrayList<>(2);
+        if (startDate != null && toMillis(startDate) > now) {
+            timeouts.add(wheel.schedule(toMillis(startDate), new TransitionEvent(promotionId, Kind.START, startDate)));
+        }
+        // La promoción sigue vigente durante endDate (comparación inclusiva): deja de estarlo justo después
+        if (endDate != null && toMillis(endDate) >= now) {
+            timeouts.add(wheel.schedule(toMillis(endDate) + 1, new TransitionEvent(promotionId, Kind.END, endDate)));
+        }
+        if (!timeouts.isEmpty()) {
+            registrations.put(promotionId, timeouts);
+        }
+    }
+
+    private synchronized void cancel(Long promotionId) {
+        List<TimingWheel.Timeout<TransitionEvent>> timeouts = registrations.remove(promotionId);
+        if (timeouts != null) {
+            timeouts.forEach(TimingWheel.Timeout::cancel);
+        }
+    }
+
+    @Scheduled(fixedRateString = "${pricing.transitions.tick-ms:1000}")
+    public void tick() {
+        List<TransitionEvent> due;
+        synchronized (this) {
+            due = wheel.advance(System.currentTimeMillis());
+            for (TransitionEvent event : due) {
+                List<TimingWheel.Timeout<TransitionEvent>> timeouts = registrations.get(event.promotionId());
+                if (timeouts != null) {
+                    timeouts.removeIf(timeout -> timeout.payload() == event);
+                    if (timeouts.isEmpty()) {
+                        registrations.remove(event.promotionId());
+                    }
+                }
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        // Los oyentes abren sus propias transacciones: se entregan fuera del bloqueo y del hilo del planificador
+        try {
+            deliveryExecutor.execute(() -> deliver(due));
+        } catch (RejectedExecutionException e) {
+            log.warn("{} cambios de vigencia sin entregar al apagar: los recoge la revisión periódica", due.size());
+        }
+    }
+
+    private void deliver(List<TransitionEvent> due) {
+        for (TransitionEvent event : due) {
+            try {
+                eventPublisher.publishEvent(event);
+                firedTransitions.increment();
+            } catch (RuntimeException e) {
+                // La revisión periódica de PricingService lo recoge más tarde
+                log.error("Error al aplicar el {} de la promoción {}", event.kind(), event.promotionId(), e);
+            }
+        }
+    }
+
+    private synchronized int pending() {
+        return wheel.pending();
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        // Las fechas de promoción se comparan con LocalDateTime.now(), es decir, en la zona del sistema
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,94 @@
+package com.app.shopin.modules.pricing.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Rueda de temporización con hash: los vencimientos se reparten en {@code wheelSize} cubetas según su tick
+ * (tick % wheelSize), así que programar y cancelar cuesta O(1) y cada avance solo revisa las cubetas de los ticks
+ * transcurridos. Un vencimiento a más de una vuelta se queda en su cubeta hasta que llega su tick.
+ * No es thread-safe: quien la usa sincroniza el acceso.
+ */
+final class TimingWheel<T> {
+
+    static final class Timeout<T> {
+        private final long deadlineTick;
+        private final T payload;
+        private boolean cancelled;
+
+        private Timeout(long deadlineTick, T payload) {
+            this.deadlineTick = deadlineTick;
+            this.payload = payload;
+        }
+
+        T payload() {
+            return payload;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private final long tickMillis;
+    private final int mask;
+    private final List<List<Timeout<T>>> buckets;
+    // Último tick ya procesado: todo lo que vence hasta él ya se entregó
+    private long currentTick;
+    private int pending;
+
+    TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("tickMillis debe ser positivo y wheelSize una potencia de 2");
+        }
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    // Se entrega en el primer avance que alcance deadlineMillis; un vencimiento pasado sale en el siguiente tick
+    Timeout<T> schedule(long deadlineMillis, T payload) {
+        long deadlineTick = Math.max(Math.ceilDiv(deadlineMillis, tickMillis), currentTick + 1);
+        Timeout<T> timeout = new Timeout<>(deadlineTick, payload);
+        buckets.get((int) (deadlineTick & mask)).add(timeout);
+        pending++;
+        return timeout;
+    }
+
+    // Procesa los ticks hasta nowMillis y devuelve lo vencido, sin los cancelados
+    List<T> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<T> expired = new ArrayList<>();
+        if (targetTick <= currentTick) {
+            return expired;
+        }
+        // Tras una pausa de más de una vuelta basta con revisar cada cubeta una vez
+        long ticks = Math.min(targetTick - currentTick, mask + 1L);
+        for (long tick = targetTick - ticks + 1; tick <= targetTick; tick++) {
+            Iterator<Timeout<T>> it = buckets.get((int) (tick & mask)).iterator();
+            while (it.hasNext()) {
+                Timeout<T> timeout = it.next();
+                if (timeout.cancelled) {
+                    it.remove();
+                    pending--;
+                } else if (timeout.deadlineTick <= targetTick) {
+                    it.remove();
+                    pending--;
+                    expired.add(timeout.payload);
+                }
+            }
+        }
+        currentTick = targetTick;
+        return expired;
+    }
+
+    // Incluye cancelados que aún no se han retirado de su cubeta
+    int pending() {
+        return pending;
+    }
+}
@@ -4,10 +4,12 @@ import com.app.shopin.modules.product.dto.CategoryDTO;
 import com.app.shopin.modules.product.service.CategoryService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -18,16 +20,25 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
 
+    // Los clientes y la CDN pueden guardar la respuesta, pero deben revalidarla (ETag) antes de reutilizarla
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePublic();
+
     // --- ENDPOINTS PÚBLICOS (PARA QUE TODOS VEAN LAS CATEGORÍAS) ---
     @GetMapping
-    public ResponseEntity<List<CategoryDTO>> getTopLevelCategories() {
+    public ResponseEntity<List<CategoryDTO>> getTopLevelCategories(WebRequest request) {
+        if (request.checkNotModified(categoryService.getCategoriesVersion().etag())) {
+            return null;
+        }
         // Devuelve las categorías principales (ej. "Electrónica", "Hogar")
-        return ResponseEntity.ok(categoryService.getTopLevelCategories());
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(categoryService.getTopLevelCategories());
     }
 
     @GetMapping("/{categoryId}")
-    public ResponseEntity<CategoryDTO> getCategoryById(@PathVariable Long categoryId) {
-        return ResponseEntity.ok(categoryService.getCategoryById(categoryId));
+    public ResponseEntity<CategoryDTO> getCategoryById(@PathVariable Long categoryId, WebRequest request) {
+        if (request.checkNotModified(categoryService.getCategoriesVersion().etag())) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(categoryService.getCategoryById(categoryId));
     }
 
     // --- ENDPOINTS DE GESTIÓN (PROTEGIDOS PARA ADMINS/EMPLEADOS) ---
@@ -1,22 +1,46 @@
 package com.app.shopin.modules.product.controller;
 
+import com.app.shopin.modules.product.dto.BulkDiscountUpdateDTO;
+import com.app.shopin.modules.product.dto.BulkPriceUpdateDTO;
+import com.app.shopin.modules.product.dto.BulkUpdateResultDTO;
+import com.app.shopin.modules.product.dto.MediaUploadRequestDTO;
+import com.app.shopin.modules.product.dto.MediaUploadSessionDTO;
 import com.app.shopin.modules.product.dto.ProductDTO;
+import com.app.shopin.modules.product.dto.ProductFileFormat;
+import com.app.shopin.modules.product.dto.ProductImportReportDTO;
+import com.app.shopin.modules.product.dto.ProductSearchCriteria;
+import com.app.shopin.modules.product.dto.ProductSliceDTO;
+import com.app.shopin.modules.product.dto.ProductSortKey;
 import com.app.shopin.modules.product.dto.RestockDTO;
 import com.app.shopin.modules.product.dto.UpdatePriceDTO;
 import com.app.shopin.modules.product.dto.UpdateStockDTO;
+import com.app.shopin.modules.product.service.ProductBulkUpdateService;
+import com.app.shopin.modules.product.service.ProductExportService;
+import com.app.shopin.modules.product.service.ProductImportService;
+import com.app.shopin.modules.product.service.ProductMediaUploadSessions;
 import com.app.shopin.modules.product.service.ProductService;
+import com.app.shopin.util.ResourceVersion;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -25,54 +49,79 @@ public class ProductController {
 
     @Autowired
     private ProductService productService;
+    @Autowired
+    private ProductImportService productImportService;
+    @Autowired
+    private ProductBulkUpdateService productBulkUpdateService;
+    @Autowired
+    private ProductExportService productExportService;
+    @Autowired
+    private ProductMediaUploadSessions productMediaUploadSessions;
+
+    // Los clientes y la CDN pueden guardar la respuesta, pero deben revalidarla (ETag) antes de reutilizarla
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePublic();
 
     // --- ENDPOINTS PÚBLICOS (PARA CLIENTES Y VISITANTES) ---
 
     @GetMapping
-    public ResponseEntity<Page<ProductDTO>> getAllProducts(Pageable pageable) {
-        return ResponseEntity.ok(productService.getAllProducts(pageable));
+    public ResponseEntity<Page<ProductDTO>> getAllProducts(Pageable pageable, WebRequest request) {
+        if (isNotModified(productService.getCatalogVersion(), request)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(productService.getAllProducts(pageable));
+    }
+
+    // Paginación por cursor para scroll infinito: sin OFFSET ni COUNT(*)
+    @GetMapping("/scroll")
+    public ResponseEntity<ProductSliceDTO> scrollProducts(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) ProductSortKey order,
+            @RequestParam(defaultValue = "20") int size,
+            WebRequest request) {
+        if (isNotModified(productService.getCatalogVersion(), request)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(productService.getProductsAfter(after, order, size));
     }
 
     @GetMapping("/{productId}")
-    public ResponseEntity<ProductDTO> getProductById(@PathVariable Long productId) {
-        return ResponseEntity.ok(productService.getProductById(productId));
+    public ResponseEntity<ProductDTO> getProductById(@PathVariable Long productId, WebRequest request) {
+        // Revalidación con una consulta ligera: un 304 no carga multimedia ni serializa el producto
+        if (isNotModified(productService.getProductVersion(productId), request)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(productService.getProductById(productId));
     }
 
     @GetMapping("/on-sale")
-    public ResponseEntity<List<ProductDTO>> getProductsOnSale() {
-        return ResponseEntity.ok(productService.getProductsOnSale());
+    public ResponseEntity<Page<ProductDTO>> getProductsOnSale(Pageable pageable, WebRequest request) {
+        if (isNotModified(productService.getCatalogVersion(), request)) {
+            return null;
+        }
+        ProductSearchCriteria criteria = new ProductSearchCriteria(null, null, false, null, null, null, true);
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(productService.searchProducts(criteria, pageable));
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<ProductDTO>> searchProducts(
+    public ResponseEntity<Page<ProductDTO>> searchProducts(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) Long categoryId,
             @RequestParam(required = false) Integer minDiscount,
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
-            @RequestParam(defaultValue = "false") boolean includeSubcategories) {
+            @RequestParam(defaultValue = "false") boolean includeSubcategories,
+            @RequestParam(defaultValue = "false") boolean onSale,
+            Pageable pageable,
+            WebRequest request) {
 
-        // Esta lógica se puede expandir a un método de servicio único y más complejo
-        if (name != null) {
-            return ResponseEntity.ok(productService.searchProductsByName(name));
-        }
-        if (categoryId != null) {
-            if (includeSubcategories) {
-                // Si el frontend nos pide incluir subcategorías, llamamos al método "amplio".
-                return ResponseEntity.ok(productService.getProductsByCategoryAndSubcategories(categoryId));
-            } else {
-                // Si no, llamamos al método "estricto".
-                return ResponseEntity.ok(productService.getProductsByCategory(categoryId));
-            }
-        }
-        if (minDiscount != null) {
-            return ResponseEntity.ok(productService.getProductsByMinimumDiscount(minDiscount));
-        }
-        if (minPrice != null && maxPrice != null) {
-            return ResponseEntity.ok(productService.getProductsByPriceRange(minPrice, maxPrice));
+        if (isNotModified(productService.getCatalogVersion(), request)) {
+            return null;
         }
 
-        return ResponseEntity.badRequest().build();
+        // Todos los filtros recibidos se combinan (AND) en una sola búsqueda paginada.
+        ProductSearchCriteria criteria = new ProductSearchCriteria(
+                name, categoryId, includeSubcategories, minPrice, maxPrice, minDiscount, onSale);
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(productService.searchProducts(criteria, pageable));
     }
 
     // --- ENDPOINTS DE GESTIÓN (PARA ROLES CON PERMISOS) ---
@@ -87,6 +136,18 @@ public class ProductController {
         return new ResponseEntity<>(newProduct, HttpStatus.CREATED);
     }
 
+    // Importación masiva: el cuerpo (CSV con cabecera o NDJSON) se procesa en streaming, sin cargarlo entero
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERADMIN')")
+    public ResponseEntity<ProductImportReportDTO> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            HttpServletRequest request) throws IOException {
+        ProductFileFormat format = MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)
+                ? ProductFileFormat.NDJSON
+                : ProductFileFormat.CSV;
+        return ResponseEntity.ok(productImportService.importProducts(request.getInputStream(), format));
+    }
+
     @PutMapping(value = "/{productId}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<ProductDTO> updateProduct(
             @PathVariable Long productId,
@@ -125,6 +186,20 @@ public class ProductController {
         return ResponseEntity.ok(productService.removeProductDiscount(productId));
     }
 
+    // Cambios masivos: una sola sentencia por bloque en lugar de una petición por producto
+    @PatchMapping("/bulk/price")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERADMIN')")
+    public ResponseEntity<BulkUpdateResultDTO> bulkUpdatePrice(@RequestBody @Valid BulkPriceUpdateDTO request) {
+        return ResponseEntity.ok(productBulkUpdateService.updatePrices(request));
+    }
+
+    // discountPercent = null quita el descuento propio de los productos seleccionados
+    @PatchMapping("/bulk/discount")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERADMIN')")
+    public ResponseEntity<BulkUpdateResultDTO> bulkUpdateDiscount(@RequestBody @Valid BulkDiscountUpdateDTO request) {
+        return ResponseEntity.ok(productBulkUpdateService.updateDiscounts(request));
+    }
+
     @DeleteMapping("/{productId}")
     public ResponseEntity<Void> softDeleteProduct(@PathVariable Long productId) {
         productService.softDeleteProduct(productId);
@@ -144,15 +219,89 @@ public class ProductController {
         return ResponseEntity.noContent().build();
     }
 
+    // Subidas reanudables (videos grandes): se abre una sesión y el archivo llega por trozos con su offset
+    @PostMapping("/{productId}/media/uploads")
+    public ResponseEntity<MediaUploadSessionDTO> startMediaUpload(
+            @PathVariable Long productId,
+            @RequestBody @Valid MediaUploadRequestDTO request,
+            @AuthenticationPrincipal UserDetails currentUser) {
+        return new ResponseEntity<>(productMediaUploadSessions.start(productId, request, currentUser.getUsername()),
+                HttpStatus.CREATED);
+    }
+
+    @PatchMapping(value = "/{productId}/media/uploads/{uploadId}",
+            consumes = {"application/offset+octet-stream", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<MediaUploadSessionDTO> appendMediaUpload(
+            @PathVariable Long productId,
+            @PathVariable String uploadId,
+            @RequestHeader("Upload-Offset") long offset,
+            @AuthenticationPrincipal UserDetails currentUser,
+            HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(productMediaUploadSessions.append(productId, uploadId, currentUser.getUsername(),
+                offset, request.getInputStream()));
+    }
+
+    // Los GET de /api/products son públicos: el estado de una subida solo lo consulta el usuario que la abrió
+    @GetMapping("/{productId}/media/uploads/{uploadId}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<MediaUploadSessionDTO> getMediaUpload(
+            @PathVariable Long productId,
+            @PathVariable String uploadId,
+            @AuthenticationPrincipal UserDetails currentUser) {
+        return ResponseEntity.ok(productMediaUploadSessions.status(productId, uploadId, currentUser.getUsername()));
+    }
+
+    @DeleteMapping("/{productId}/media/uploads/{uploadId}")
+    public ResponseEntity<Void> cancelMediaUpload(
+            @PathVariable Long productId,
+            @PathVariable String uploadId,
+            @AuthenticationPrincipal UserDetails currentUser) {
+        productMediaUploadSessions.cancel(productId, uploadId, currentUser.getUsername());
+        return ResponseEntity.noContent().build();
+    }
+
     // --- ENDPOINTS DE SUPER-ADMIN ---
 
+    // Exportación completa del catálogo en streaming; el GET de /api/products es público, por eso la restricción aquí
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(defaultValue = "NDJSON") ProductFileFormat format,
+            @RequestParam(defaultValue = "false") boolean includeDeleted) {
+        MediaType contentType = format == ProductFileFormat.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : MediaType.APPLICATION_NDJSON;
+        String fileName = "products." + (format == ProductFileFormat.CSV ? "csv" : "ndjson");
+        StreamingResponseBody body = out -> productExportService.exportProducts(out, format, includeDeleted);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
     @GetMapping("/all-with-deleted")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERADMIN')")
     public ResponseEntity<Page<ProductDTO>> getAllProductsIncludingDeleted(Pageable pageable) {
         return ResponseEntity.ok(productService.getAllProductsIncludingDeleted(pageable));
     }
 
+    @GetMapping("/all-with-deleted/scroll")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERADMIN')")
+    public ResponseEntity<ProductSliceDTO> scrollProductsIncludingDeleted(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(productService.getAllProductsIncludingDeletedAfter(after, size));
+    }
+
     @PostMapping("/{productId}/reactivate")
     public ResponseEntity<ProductDTO> reactivateProduct(@PathVariable Long productId) {
         return ResponseEntity.ok(productService.reactivateProduct(productId));
     }
+
+    // --- MÉTODO DE AYUDA ---
+
+    // Añade ETag/Last-Modified a la respuesta y devuelve true si el cliente ya tiene esta versión (304)
+    private boolean isNotModified(ResourceVersion version, WebRequest request) {
+        return request.checkNotModified(version.etag(), version.lastModified());
+    }
 }
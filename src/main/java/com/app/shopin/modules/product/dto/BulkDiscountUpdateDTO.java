@@ -0,0 +1,15 @@
+package com.app.shopin.modules.product.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+public record BulkDiscountUpdateDTO(
+        @NotNull(message = "Debe indicar los productos a modificar.")
+        @Valid
+        BulkProductTarget target,
+        // null quita el descuento propio de los productos
+        @Min(0) @Max(100)
+        Integer discountPercent
+) {}
@@ -0,0 +1,10 @@
+package com.app.shopin.modules.product.dto;
+
+public enum BulkPriceChangeMode {
+    // Precio fijo para todos los productos seleccionados
+    SET,
+    // Variación porcentual sobre el precio actual (p. ej. 10 sube un 10 %, -5 baja un 5 %)
+    PERCENT,
+    // Importe que se suma (o resta, si es negativo) al precio actual
+    AMOUNT
+}
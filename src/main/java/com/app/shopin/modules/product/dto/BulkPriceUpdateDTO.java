@@ -0,0 +1,19 @@
+package com.app.shopin.modules.product.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+
+public record BulkPriceUpdateDTO(
+        @NotNull(message = "Debe indicar los productos a modificar.")
+        @Valid
+        BulkProductTarget target,
+        @NotNull(message = "Debe indicar el tipo de cambio de precio.")
+        BulkPriceChangeMode mode,
+        @NotNull(message = "El valor del cambio no puede ser nulo.")
+        // Mismo formato que la columna price, numeric(10,2)
+        @Digits(integer = 8, fraction = 2, message = "El valor admite como máximo 8 dígitos enteros y 2 decimales.")
+        BigDecimal value
+) {}
@@ -0,0 +1,12 @@
+package com.app.shopin.modules.product.dto;
+
+import java.util.List;
+
+// Selección de productos para una operación masiva: exactamente uno de los tres criterios
+public record BulkProductTarget(
+        List<Long> productIds,
+        Long categoryId,
+        // Solo aplica con categoryId: incluye también las subcategorías
+        Boolean includeSubcategories,
+        String skuPrefix
+) {}
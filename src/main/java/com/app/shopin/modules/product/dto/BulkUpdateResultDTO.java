@@ -0,0 +1,8 @@
+package com.app.shopin.modules.product.dto;
+
+public record BulkUpdateResultDTO(
+        // Productos modificados por la operación
+        int updated,
+        // Productos cuyo precio efectivo cambió como consecuencia
+        int repriced
+) {}
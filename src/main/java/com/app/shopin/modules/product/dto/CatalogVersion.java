@@ -0,0 +1,6 @@
+package com.app.shopin.modules.product.dto;
+
+import java.time.LocalDateTime;
+
+// Estado agregado del catálogo: cambia con cualquier alta, baja o modificación de un producto.
+public record CatalogVersion(Long productCount, LocalDateTime lastModified) {}
@@ -0,0 +1,13 @@
+package com.app.shopin.modules.product.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+public record MediaUploadRequestDTO(
+        @NotBlank(message = "El tipo de contenido es obligatorio.")
+        String contentType, // "image/..." o "video/..."
+        @NotNull(message = "El tamaño total es obligatorio.")
+        @Positive(message = "El tamaño total debe ser positivo.")
+        Long totalBytes
+) {}
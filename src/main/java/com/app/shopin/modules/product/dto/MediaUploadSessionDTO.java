@@ -0,0 +1,12 @@
+package com.app.shopin.modules.product.dto;
+
+public record MediaUploadSessionDTO(
+        String uploadId,
+        Long productId,
+        // Bytes ya recibidos: el siguiente trozo debe empezar aquí
+        long offset,
+        long totalBytes,
+        boolean completed,
+        // Multimedia creada al completar la subida (PENDING hasta que termine de subirse al almacenamiento)
+        ProductMediaDTO media
+) {}
@@ -0,0 +1,11 @@
+package com.app.shopin.modules.product.dto;
+
+// Cada URL es null si ese tamaño no se generó (videos, imágenes antiguas o WebP no disponible)
+public record MediaVariantsDTO(
+        String thumb, // 160x160 recortada
+        String card, // lado mayor 480
+        String detail, // lado mayor 1080
+        String thumbWebp,
+        String cardWebp,
+        String detailWebp
+) {}
@@ -0,0 +1,35 @@
+package com.app.shopin.modules.product.dto;
+
+import com.app.shopin.modules.exception.CustomException;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Posición dentro de un listado paginado por keyset: el valor de la clave de orden
+ * y el ID del último producto entregado. Viaja al cliente como un token opaco.
+ */
+public record ProductCursor(
+        ProductSortKey sortKey,
+        Long lastId,
+        String lastValue
+) {
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String raw = sortKey.name() + SEPARATOR + lastId + SEPARATOR + (lastValue != null ? lastValue : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // El valor va al final porque puede contener el separador (ej. un nombre de producto)
+            String[] parts = raw.split("\\|", 3);
+            return new ProductCursor(ProductSortKey.valueOf(parts[0]), Long.valueOf(parts[1]), parts[2]);
+        } catch (RuntimeException e) {
+            throw new CustomException(HttpStatus.BAD_REQUEST, "El cursor de paginación no es válido.");
+        }
+    }
+}
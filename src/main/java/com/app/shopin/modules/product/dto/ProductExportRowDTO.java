@@ -0,0 +1,25 @@
+package com.app.shopin.modules.product.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Fila de la exportación del catálogo; se construye directamente desde el ResultSet, sin entidades
+public record ProductExportRowDTO(
+        Long id,
+        String sku,
+        String name,
+        String description,
+        BigDecimal price,
+        Integer discountPercent,
+        BigDecimal effectivePrice,
+        Integer effectiveDiscountPercent,
+        Integer stockQuantity,
+        Long categoryId,
+        // Nombres desde la raíz, p. ej. "Ropa > Hombre > Camisas"
+        String categoryPath,
+        List<String> mediaUrls,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        LocalDateTime deletedAt
+) {}
@@ -0,0 +1,6 @@
+package com.app.shopin.modules.product.dto;
+
+public enum ProductFileFormat {
+    CSV,
+    NDJSON
+}
@@ -0,0 +1,7 @@
+package com.app.shopin.modules.product.dto;
+
+public record ProductImportErrorDTO(
+        long line,
+        String sku,
+        String message
+) {}
@@ -0,0 +1,15 @@
+package com.app.shopin.modules.product.dto;
+
+import java.util.List;
+
+public record ProductImportReportDTO(
+        long totalRows,
+        long imported,
+        long rejected,
+        List<ProductImportErrorDTO> errors,
+        // true si hubo más errores de los que se devuelven en la lista
+        boolean errorsTruncated,
+        // false si la lectura se cortó en un registro mal formado; las filas anteriores ya están importadas
+        boolean complete,
+        long durationMs
+) {}
@@ -1,7 +1,11 @@
 package com.app.shopin.modules.product.dto;
 
+import com.app.shopin.modules.product.enums.MediaStatus;
+
 public record ProductMediaDTO(
         Long id,
-        String url,
-        String mediaType // "IMAGE" o "VIDEO"
+        String url, // null mientras la subida está pendiente; en listados, el tamaño de tarjeta si existe
+        String mediaType, // "IMAGE" o "VIDEO"
+        MediaStatus status,
+        MediaVariantsDTO variants // null si no hay tamaños precalculados
 ) {}
@@ -0,0 +1,7 @@
+package com.app.shopin.modules.product.dto;
+
+import java.math.BigDecimal;
+
+// Lo mínimo para cotizar un producto, sin hidratar multimedia ni promociones
+public record ProductPricing(Long id, String name, BigDecimal price, Integer discountPercent, Long categoryId,
+                             BigDecimal effectivePrice, Integer effectiveDiscountPercent) {}
@@ -0,0 +1,18 @@
+package com.app.shopin.modules.product.dto;
+
+import java.math.BigDecimal;
+
+public record ProductSearchCriteria(
+        String name,
+        Long categoryId,
+        // Si es true, la búsqueda por categoría también incluye sus subcategorías.
+        boolean includeSubcategories,
+        BigDecimal minPrice,
+        BigDecimal maxPrice,
+        Integer minDiscount,
+        boolean onSale
+) {
+    public boolean hasName() {
+        return name != null && !name.isBlank();
+    }
+}
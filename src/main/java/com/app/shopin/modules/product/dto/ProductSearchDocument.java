@@ -0,0 +1,9 @@
+package com.app.shopin.modules.product.dto;
+
+// Campos de un producto que alimentan el índice de búsqueda en memoria.
+public record ProductSearchDocument(
+        Long id,
+        String sku,
+        String name,
+        String description
+) {}
@@ -0,0 +1,11 @@
+package com.app.shopin.modules.product.dto;
+
+import java.util.List;
+
+// Página sin conteo total: solo indica si hay más resultados y el cursor para pedirlos.
+public record ProductSliceDTO(
+        List<ProductDTO> content,
+        int size,
+        boolean hasNext,
+        String nextCursor
+) {}
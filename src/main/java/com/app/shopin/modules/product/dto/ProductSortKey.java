@@ -0,0 +1,10 @@
+package com.app.shopin.modules.product.dto;
+
+// Órdenes soportados por la paginación por cursor (keyset). Todos desempatan por ID.
+public enum ProductSortKey {
+    ID,         // id ascendente
+    NEWEST,     // id descendente
+    PRICE_ASC,
+    PRICE_DESC,
+    NAME
+}
@@ -0,0 +1,5 @@
+package com.app.shopin.modules.product.dto;
+
+import java.time.LocalDateTime;
+
+public record ProductVersion(Long id, LocalDateTime lastModified) {}
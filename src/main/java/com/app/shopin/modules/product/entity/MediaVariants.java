@@ -0,0 +1,58 @@
+package com.app.shopin.modules.product.entity;
+
+import com.app.shopin.services.cloudinary.ImageVariant;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.util.Map;
+
+// URLs de los tamaños precalculados de una imagen; null en videos y en imágenes anteriores a los tamaños
+@Embeddable
+public class MediaVariants {
+
+    @Column(name = "thumb_url", columnDefinition = "TEXT")
+    private String thumbUrl;
+
+    @Column(name = "card_url", columnDefinition = "TEXT")
+    private String cardUrl;
+
+    @Column(name = "detail_url", columnDefinition = "TEXT")
+    private String detailUrl;
+
+    @Column(name = "thumb_webp_url", columnDefinition = "TEXT")
+    private String thumbWebpUrl;
+
+    @Column(name = "card_webp_url", columnDefinition = "TEXT")
+    private String cardWebpUrl;
+
+    @Column(name = "detail_webp_url", columnDefinition = "TEXT")
+    private String detailWebpUrl;
+
+    // A partir del mapa de StorageService.imageVariantUrls
+    public static MediaVariants of(Map<String, String> urls) {
+        MediaVariants variants = new MediaVariants();
+        variants.thumbUrl = urls.get(ImageVariant.THUMB.urlKey(false));
+        variants.cardUrl = urls.get(ImageVariant.CARD.urlKey(false));
+        variants.detailUrl = urls.get(ImageVariant.DETAIL.urlKey(false));
+        variants.thumbWebpUrl = urls.get(ImageVariant.THUMB.urlKey(true));
+        variants.cardWebpUrl = urls.get(ImageVariant.CARD.urlKey(true));
+        variants.detailWebpUrl = urls.get(ImageVariant.DETAIL.urlKey(true));
+        return variants;
+    }
+
+    public String getUrl(ImageVariant variant) {
+        return switch (variant) {
+            case THUMB -> thumbUrl;
+            case CARD -> cardUrl;
+            case DETAIL -> detailUrl;
+        };
+    }
+
+    public String getWebpUrl(ImageVariant variant) {
+        return switch (variant) {
+            case THUMB -> thumbWebpUrl;
+            case CARD -> cardWebpUrl;
+            case DETAIL -> detailWebpUrl;
+        };
+    }
+}
@@ -1,13 +1,13 @@
 package com.app.shopin.modules.product.entity;
 
 import com.app.shopin.modules.favorites.entity.FavoriteList;
+import com.app.shopin.modules.pricing.service.PriceCalculator;
 import com.app.shopin.modules.promotion.entity.Promotion;
 import jakarta.persistence.*;
 import org.hibernate.annotations.SQLDelete;
 import org.hibernate.annotations.Where;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -41,9 +41,15 @@ public class Product {
 
     @Column
     private Integer discountPercent;
-    @ManyToMany(mappedBy = "products", fetch = FetchType.EAGER)
+    @ManyToMany(mappedBy = "products", fetch = FetchType.LAZY)
     private Set<Promotion> promotions = new HashSet<>();
 
+    // Precio de venta y descuento aplicado, mantenidos por PricingService
+    @Column(precision = 10, scale = 2)
+    private BigDecimal effectivePrice;
+    @Column
+    private Integer effectiveDiscountPercent;
+
     @Column(nullable = false)
     private Integer stockQuantity;
     @Column
@@ -206,32 +212,32 @@ public class Product {
         this.deletedAt = deletedAt;
     }
 
-    @Transient
+    // Columna mantenida por PricingService; null solo en filas aún sin calcular (ver PricingService.effectivePrice)
     public BigDecimal getEffectivePrice() {
-        // 1. Buscamos la mejor promoción activa para este producto
-        Integer bestPromotionPercent = this.getPromotions().stream()
-                .filter(promo ->
-                        promo.isActive() &&
-                                (promo.getStartDate() == null || !LocalDateTime.now().isBefore(promo.getStartDate())) &&
-                                (promo.getEndDate() == null || !LocalDateTime.now().isAfter(promo.getEndDate()))
-                )
-                .map(Promotion::getDiscountPercent)
-                .max(Integer::compareTo) // Encontramos el porcentaje más alto
-                .orElse(0); // Si no hay promociones, el descuento es 0
-
-        // 2. Comparamos el descuento de la promoción con el descuento individual del producto
-        Integer finalDiscountPercent = Math.max(
+        return effectivePrice;
+    }
+
+    public void setEffectivePrice(BigDecimal effectivePrice) {
+        this.effectivePrice = effectivePrice;
+    }
+
+    public Integer getEffectiveDiscountPercent() {
+        return effectiveDiscountPercent;
+    }
+
+    public void setEffectiveDiscountPercent(Integer effectiveDiscountPercent) {
+        this.effectiveDiscountPercent = effectiveDiscountPercent;
+    }
+
+    // Aplica el mejor entre el descuento propio y el de promoción ya resuelto (PromotionIndex)
+    public void applyPromotionDiscount(int bestPromotionPercent) {
+        int finalDiscountPercent = Math.max(
                 bestPromotionPercent,
                 this.getDiscountPercent() != null ? this.getDiscountPercent() : 0
         );
 
-        // 3. Si no hay ningún descuento, devolvemos el precio normal
-        if (finalDiscountPercent <= 0) {
-            return this.price;
-        }
-
-        // 4. Aplicamos el MEJOR descuento
-        BigDecimal discountMultiplier = BigDecimal.valueOf(100 - finalDiscountPercent).divide(BigDecimal.valueOf(100));
-        return this.price.multiply(discountMultiplier).setScale(2, RoundingMode.HALF_UP);
+        // Sin descuento, el precio efectivo es el normal
+        this.effectiveDiscountPercent = finalDiscountPercent;
+        this.effectivePrice = PriceCalculator.applyDiscount(this.price, finalDiscountPercent);
     }
 }
\ No newline at end of file
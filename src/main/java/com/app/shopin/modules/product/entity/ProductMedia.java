@@ -1,7 +1,11 @@
 package com.app.shopin.modules.product.entity;
 
+import com.app.shopin.modules.product.enums.MediaStatus;
+import com.app.shopin.services.cloudinary.ImageVariant;
 import jakarta.persistence.*;
 
+import java.time.LocalDateTime;
+
 @Entity
 @Table(name = "product_media")
 public class ProductMedia {
@@ -10,20 +14,39 @@ public class ProductMedia {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, columnDefinition = "TEXT")
+    // URL e id de almacenamiento solo existen cuando la subida termina (status READY)
+    @Column(columnDefinition = "TEXT")
     private String url;
 
-    @Column(nullable = false)
+    @Column
     private String publicId;
 
     // "IMAGE" o "VIDEO"
     @Column(nullable = false)
     private String mediaType;
 
+    // Filas anteriores a la subida asíncrona (null) se consideran listas
+    @Enumerated(EnumType.STRING)
+    @Column
+    private MediaStatus status;
+
+    // Tamaños generados al subir la imagen (ver ImageVariant)
+    @Embedded
+    private MediaVariants variants;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
 
+    // null en filas anteriores a la columna; permite detectar subidas PENDING abandonadas
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
     public Long getId() {
         return id;
     }
@@ -56,6 +79,32 @@ public class ProductMedia {
         this.mediaType = mediaType;
     }
 
+    public MediaStatus getStatus() {
+        return status != null ? status : MediaStatus.READY;
+    }
+
+    public void setStatus(MediaStatus status) {
+        this.status = status;
+    }
+
+    public boolean isReady() {
+        return getStatus() == MediaStatus.READY;
+    }
+
+    public MediaVariants getVariants() {
+        return variants;
+    }
+
+    public void setVariants(MediaVariants variants) {
+        this.variants = variants;
+    }
+
+    // URL del tamaño pedido o, si no se generó, la del original
+    public String getUrl(ImageVariant variant) {
+        String variantUrl = variants != null ? variants.getUrl(variant) : null;
+        return variantUrl != null ? variantUrl : url;
+    }
+
     public Product getProduct() {
         return product;
     }
@@ -63,4 +112,8 @@ public class ProductMedia {
     public void setProduct(Product product) {
         this.product = product;
     }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
 }
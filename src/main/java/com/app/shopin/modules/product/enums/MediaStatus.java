@@ -0,0 +1,9 @@
+package com.app.shopin.modules.product.enums;
+
+public enum MediaStatus {
+    // Registrado, el archivo aún se está subiendo al almacenamiento
+    PENDING,
+    READY,
+    // La subida falló: no tiene URL y no cuenta para los límites de imágenes/video
+    FAILED,
+}
@@ -1,7 +1,9 @@
 package com.app.shopin.modules.product.repository;
 
+import com.app.shopin.modules.product.dto.CategoryDTO;
 import com.app.shopin.modules.product.entity.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,4 +12,8 @@ import java.util.List;
 public interface CategoryRepository extends JpaRepository<Category, Long> {
 
     List<Category> findByParentId(Long parentId);
+
+    // Filas planas para construir el árbol en memoria (CategoryTree)
+    @Query("SELECT new com.app.shopin.modules.product.dto.CategoryDTO(c.id, c.name, c.description, p.id) FROM Category c LEFT JOIN c.parent p")
+    List<CategoryDTO> findAllAsDto();
 }
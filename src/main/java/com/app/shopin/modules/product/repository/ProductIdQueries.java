@@ -0,0 +1,12 @@
+package com.app.shopin.modules.product.repository;
+
+import com.app.shopin.modules.product.entity.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface ProductIdQueries {
+
+    // Devuelve solo los IDs de los productos que cumplen la especificación, sin hidratar entidades.
+    List<Long> findIds(Specification<Product> specification);
+}
@@ -1,7 +1,33 @@
 package com.app.shopin.modules.product.repository;
 
 import com.app.shopin.modules.product.entity.ProductMedia;
+import com.app.shopin.modules.product.enums.MediaStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 public interface ProductMediaRepository extends JpaRepository<ProductMedia, Long> {
+
+    // Solo afecta a filas aún pendientes: 0 si la multimedia se borró o reemplazó mientras se subía
+    @Modifying
+    @Query("UPDATE ProductMedia m SET m.url = :url, m.publicId = :publicId, m.status = :ready WHERE m.id = :id AND m.status = :pending")
+    int completeUpload(@Param("id") Long id, @Param("url") String url, @Param("publicId") String publicId,
+                       @Param("ready") MediaStatus ready, @Param("pending") MediaStatus pending);
+
+    @Modifying
+    @Query("UPDATE ProductMedia m SET m.status = :failed WHERE m.id = :id AND m.status = :pending")
+    int failUpload(@Param("id") Long id, @Param("failed") MediaStatus failed, @Param("pending") MediaStatus pending);
+
+    @Query("SELECT DISTINCT m.product.id FROM ProductMedia m WHERE m.status = :pending AND m.createdAt < :cutoff")
+    List<Long> findProductIdsWithPendingBefore(@Param("pending") MediaStatus pending, @Param("cutoff") LocalDateTime cutoff);
+
+    // Subidas que nunca terminaron (p. ej. el servidor se detuvo con la cola llena)
+    @Modifying
+    @Query("UPDATE ProductMedia m SET m.status = :failed WHERE m.status = :pending AND m.createdAt < :cutoff")
+    int failPendingBefore(@Param("cutoff") LocalDateTime cutoff, @Param("failed") MediaStatus failed,
+                          @Param("pending") MediaStatus pending);
 }
@@ -1,39 +1,124 @@
 package com.app.shopin.modules.product.repository;
 
+import com.app.shopin.modules.product.dto.CatalogVersion;
+import com.app.shopin.modules.product.dto.ProductPricing;
+import com.app.shopin.modules.product.dto.ProductSearchDocument;
+import com.app.shopin.modules.product.dto.ProductVersion;
 import com.app.shopin.modules.product.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>, ProductIdQueries {
 
     List<Product> findByCategoryId(Long categoryId);
 
-    List<Product> findByNameContainingIgnoreCase(String name);
+    // --- PAGINACIÓN POR KEYSET ---
+    // Al devolver Slice, Spring Data no ejecuta el COUNT(*) y solo pide un elemento extra para saber si hay más.
+
+    @Query("SELECT p FROM Product p")
+    Slice<Product> findSliceBy(Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE p.id > :lastId ORDER BY p.id ASC")
+    Slice<Product> findSliceAfterId(@Param("lastId") Long lastId, Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE p.id < :lastId ORDER BY p.id DESC")
+    Slice<Product> findSliceBeforeId(@Param("lastId") Long lastId, Pageable pageable);
+
+    // Orden por precio de venta: COALESCE para que las filas aún sin precio efectivo calculado no se pierdan
+    @Query("SELECT p FROM Product p ORDER BY COALESCE(p.effectivePrice, p.price) ASC, p.id ASC")
+    Slice<Product> findSliceByPriceAsc(Pageable pageable);
+
+    @Query("SELECT p FROM Product p ORDER BY COALESCE(p.effectivePrice, p.price) DESC, p.id DESC")
+    Slice<Product> findSliceByPriceDesc(Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE COALESCE(p.effectivePrice, p.price) > :lastPrice"
+            + " OR (COALESCE(p.effectivePrice, p.price) = :lastPrice AND p.id > :lastId)"
+            + " ORDER BY COALESCE(p.effectivePrice, p.price) ASC, p.id ASC")
+    Slice<Product> findSliceAfterPriceAsc(@Param("lastPrice") BigDecimal lastPrice, @Param("lastId") Long lastId, Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE COALESCE(p.effectivePrice, p.price) < :lastPrice"
+            + " OR (COALESCE(p.effectivePrice, p.price) = :lastPrice AND p.id < :lastId)"
+            + " ORDER BY COALESCE(p.effectivePrice, p.price) DESC, p.id DESC")
+    Slice<Product> findSliceAfterPriceDesc(@Param("lastPrice") BigDecimal lastPrice, @Param("lastId") Long lastId, Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE p.name > :lastName OR (p.name = :lastName AND p.id > :lastId) ORDER BY p.name ASC, p.id ASC")
+    Slice<Product> findSliceAfterName(@Param("lastName") String lastName, @Param("lastId") Long lastId, Pageable pageable);
 
     boolean existsBySku(String sku);
 
+    // Carga en una sola consulta todo lo que necesita ProductDTO (multimedia y promociones)
+    @EntityGraph(attributePaths = {"media"})
+    @Query("SELECT p FROM Product p WHERE p.id = :id")
+    Optional<Product> findDetailedById(@Param("id") Long id);
+
+    @EntityGraph(attributePaths = {"media"})
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids")
+    List<Product> findAllWithDetailsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.app.shopin.modules.product.dto.ProductSearchDocument(p.id, p.sku, p.name, p.description) FROM Product p")
+    List<ProductSearchDocument> findAllSearchDocuments();
+
     @Query(value = "SELECT * FROM products", nativeQuery = true)
     Page<Product> findAllWithDeleted(Pageable pageable);
 
+    // Paginación por keyset (sin OFFSET ni COUNT) incluyendo borrados lógicamente
+    @Query(value = "SELECT * FROM products WHERE id > :afterId ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Product> findAllWithDeletedAfterId(@Param("afterId") long afterId, @Param("limit") int limit);
+
     // Busca un producto por ID, incluyendo si está borrado lógicamente
     @Query(value = "SELECT * FROM products WHERE id = ?1", nativeQuery = true)
     Optional<Product> findWithDeletedById(Long id);
 
-    List<Product> findByPriceBetween(BigDecimal minPrice, BigDecimal maxPrice);
+    // CONDITIONAL REQUESTS SECTION
+    // Versión ligera para ETag/Last-Modified: no hidrata multimedia ni promociones
+    @Query("SELECT new com.app.shopin.modules.product.dto.ProductVersion(p.id, COALESCE(p.updatedAt, p.createdAt)) FROM Product p WHERE p.id = :id")
+    Optional<ProductVersion> findVersionById(@Param("id") Long id);
+
+    @Query("SELECT new com.app.shopin.modules.product.dto.CatalogVersion(COUNT(p), MAX(COALESCE(p.updatedAt, p.createdAt))) FROM Product p")
+    CatalogVersion findCatalogVersion();
+
+    // Para cambios que no pasan por la entidad (p. ej. una subida de multimedia terminada en segundo plano)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.updatedAt = :now WHERE p.id = :id")
+    int touch(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.updatedAt = :now WHERE p.id IN :ids")
+    int touchAll(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // STOCK SECTION
+    // Actualizaciones condicionales en una sola sentencia: sin lectura previa ni bloqueo explícito de la fila
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity, p.updatedAt = :now WHERE p.id = :id AND p.stockQuantity >= :quantity")
+    int decrementStock(@Param("id") Long id, @Param("quantity") int quantity, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :quantity, p.lastRefilledAt = :now, p.updatedAt = :now WHERE p.id = :id")
+    int restock(@Param("id") Long id, @Param("quantity") int quantity, @Param("now") LocalDateTime now);
 
-    @Query("SELECT p FROM Product p WHERE p.category.id IN (SELECT c.id FROM Category c WHERE c.id = :categoryId OR c.parent.id = :categoryId)")
-    List<Product> findByCategoryIdWithSubcategories(@Param("categoryId") Long categoryId);
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = :stock, p.updatedAt = :now WHERE p.id = :id")
+    int setStock(@Param("id") Long id, @Param("stock") int stock, @Param("now") LocalDateTime now);
 
-    List<Product> findByDiscountPercentGreaterThan(Integer percent);
+    // PRICING SECTION
+    @Query("SELECT p.id FROM Product p WHERE p.category.id IN :categoryIds")
+    List<Long> findIdsByCategoryIdIn(@Param("categoryIds") Collection<Long> categoryIds);
 
-    List<Product> findByDiscountPercentGreaterThanEqual(Integer percent);
+    @Query("SELECT new com.app.shopin.modules.product.dto.ProductPricing(p.id, p.name, p.price, p.discountPercent, p.category.id, p.effectivePrice, p.effectiveDiscountPercent) FROM Product p WHERE p.id IN :ids")
+    List<ProductPricing> findPricingByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,63 @@
+package com.app.shopin.modules.product.repository;
+
+import com.app.shopin.modules.product.dto.ProductSearchCriteria;
+import com.app.shopin.modules.product.entity.Product;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    // Construye un único predicado combinando los filtros estructurados de los criterios.
+    // El filtro por texto no se resuelve aquí: lo resuelve ProductSearchIndex.
+    // categoryIds son las categorías ya resueltas por el servicio (null si no se filtra por categoría).
+    public static Specification<Product> fromCriteria(ProductSearchCriteria criteria, Set<Long> categoryIds) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (categoryIds != null) {
+                if (categoryIds.size() == 1) {
+                    predicates.add(cb.equal(root.get("category").get("id"), categoryIds.iterator().next()));
+                } else {
+                    predicates.add(root.get("category").get("id").in(categoryIds));
+                }
+            }
+
+            // Filtros sobre el precio de venta real (columna mantenida por PricingService); las filas aún sin
+            // calcular usan su precio base en lugar de quedar fuera
+            if (criteria.minPrice() != null || criteria.maxPrice() != null) {
+                Expression<BigDecimal> salePrice =
+                        cb.coalesce(root.<BigDecimal>get("effectivePrice"), root.<BigDecimal>get("price"));
+                if (criteria.minPrice() != null) {
+                    predicates.add(cb.greaterThanOrEqualTo(salePrice, criteria.minPrice()));
+                }
+                if (criteria.maxPrice() != null) {
+                    predicates.add(cb.lessThanOrEqualTo(salePrice, criteria.maxPrice()));
+                }
+            }
+
+            // El descuento efectivo ya es el mayor entre el descuento propio y el de sus promociones activas.
+            if (criteria.minDiscount() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("effectiveDiscountPercent"), criteria.minDiscount()));
+            }
+            if (criteria.onSale()) {
+                predicates.add(cb.greaterThan(root.get("effectiveDiscountPercent"), 0));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    public static Specification<Product> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+}
@@ -1,16 +1,20 @@
 package com.app.shopin.modules.product.service;
 
 import com.app.shopin.modules.exception.CustomException;
+import com.app.shopin.modules.pricing.service.PricingService;
 import com.app.shopin.modules.product.dto.CategoryDTO;
 import com.app.shopin.modules.product.entity.Category;
 import com.app.shopin.modules.product.repository.CategoryRepository;
 import com.app.shopin.modules.product.repository.ProductRepository;
+import com.app.shopin.util.ResourceVersion;
+import com.app.shopin.util.TransactionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,6 +24,10 @@ public class CategoryService {
     private CategoryRepository categoryRepository;
     @Autowired
     private ProductRepository productRepository; // Inyectado para la validación de borrado
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+    @Autowired
+    private PricingService pricingService;
 
     // --- MÉTODOS DE CREACIÓN Y ACTUALIZACIÓN ---
 
@@ -37,6 +45,7 @@ public class CategoryService {
         }
 
         Category savedCategory = categoryRepository.save(newCategory);
+        categoryTreeCache.invalidate();
         return mapEntityToDto(savedCategory);
     }
 
@@ -45,6 +54,7 @@ public class CategoryService {
         Category category = categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "La categoría con ID " + categoryId + " no existe."));
 
+        Long previousParentId = category.getParent() != null ? category.getParent().getId() : null;
         category.setName(categoryDTO.name());
         category.setDescription(categoryDTO.description());
 
@@ -54,6 +64,10 @@ public class CategoryService {
             if (categoryId.equals(categoryDTO.parentId())) {
                 throw new CustomException(HttpStatus.BAD_REQUEST, "Una categoría no puede ser su propio padre.");
             }
+            // Regla de negocio: tampoco puede colgar de una de sus subcategorías (crearía un ciclo)
+            if (categoryTreeCache.get().isDescendantOf(categoryDTO.parentId(), categoryId)) {
+                throw new CustomException(HttpStatus.BAD_REQUEST, "Una categoría no puede moverse debajo de una de sus subcategorías.");
+            }
             Category parentCategory = categoryRepository.findById(categoryDTO.parentId())
                     .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "La nueva categoría padre no existe."));
             category.setParent(parentCategory);
@@ -63,23 +77,31 @@ public class CategoryService {
         }
 
         Category updatedCategory = categoryRepository.save(category);
+        categoryTreeCache.invalidate();
+        if (!Objects.equals(previousParentId, categoryDTO.parentId())) {
+            // Cambian las promociones heredadas de los ancestros: se recalcula con el árbol nuevo ya publicado
+            TransactionUtils.afterCommit(() -> pricingService.recalculateCategorySubtree(categoryId));
+        }
         return mapEntityToDto(updatedCategory);
     }
 
     // --- MÉTODOS DE LECTURA ---
 
-    @Transactional(readOnly = true)
+    // Las lecturas se sirven desde el árbol en memoria, sin consultar la base de datos
     public List<CategoryDTO> getTopLevelCategories() {
         // Devuelve solo las categorías que no tienen padre
-        return categoryRepository.findByParentId(null).stream()
-                .map(this::mapEntityToDto)
+        return categoryTreeCache.get().roots().stream()
+                .map(CategoryTree.Node::toDto)
                 .collect(Collectors.toList());
     }
 
-    @Transactional(readOnly = true)
+    public ResourceVersion getCategoriesVersion() {
+        return new ResourceVersion(categoryTreeCache.get().version(), -1);
+    }
+
     public CategoryDTO getCategoryById(Long categoryId) {
-        return categoryRepository.findById(categoryId)
-                .map(this::mapEntityToDto)
+        return categoryTreeCache.get().find(categoryId)
+                .map(CategoryTree.Node::toDto)
                 .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Categoría no encontrada."));
     }
 
@@ -101,6 +123,7 @@ public class CategoryService {
         }
 
         categoryRepository.delete(category);
+        categoryTreeCache.invalidate();
     }
 
     // --- MÉTODO DE AYUDA (Mapper) ---
@@ -0,0 +1,133 @@
+package com.app.shopin.modules.product.service;
+
+import com.app.shopin.modules.product.dto.CategoryDTO;
+import com.app.shopin.util.ResourceVersion;
+
+import java.util.*;
+
+/**
+ * Instantánea inmutable del árbol de categorías.
+ * Cada nodo guarda su profundidad, sus hijos y el conjunto de IDs de su subárbol ya calculado,
+ * de modo que las consultas de jerarquía no tocan la base de datos.
+ */
+public final class CategoryTree {
+
+    public record Node(Long id, String name, String description, Long parentId, int depth,
+                       List<Long> childIds, Set<Long> subtreeIds) {
+
+        public CategoryDTO toDto() {
+            return new CategoryDTO(id, name, description, parentId);
+        }
+    }
+
+    private final Map<Long, Node> nodes;
+    private final List<Node> roots;
+    // Resumen del contenido del árbol, usado como ETag de los listados de categorías
+    private final String version;
+
+    private CategoryTree(Map<Long, Node> nodes, List<Node> roots, String version) {
+        this.nodes = nodes;
+        this.roots = roots;
+        this.version = version;
+    }
+
+    public static CategoryTree empty() {
+        return new CategoryTree(Map.of(), List.of(), ResourceVersion.digest("categories"));
+    }
+
+    /**
+     * Construye el árbol a partir de las filas planas (id, nombre, descripción, padre).
+     * Las categorías que no cuelgan de una raíz (p. ej. un ciclo) se descartan.
+     */
+    public static CategoryTree build(Collection<CategoryDTO> rows) {
+        Map<Long, CategoryDTO> byId = new HashMap<>();
+        Map<Long, List<Long>> childrenByParent = new HashMap<>();
+        List<Long> rootIds = new ArrayList<>();
+        for (CategoryDTO row : rows) {
+            byId.put(row.id(), row);
+        }
+        for (CategoryDTO row : rows) {
+            if (row.parentId() == null || !byId.containsKey(row.parentId())) {
+                rootIds.add(row.id());
+            } else {
+                childrenByParent.computeIfAbsent(row.parentId(), k -> new ArrayList<>()).add(row.id());
+            }
+        }
+        Collections.sort(rootIds);
+        childrenByParent.values().forEach(Collections::sort);
+
+        // Recorrido en anchura desde las raíces: profundidad de cada nodo y orden de visita
+        Map<Long, Integer> depths = new HashMap<>();
+        List<Long> visitOrder = new ArrayList<>();
+        Deque<Long> pending = new ArrayDeque<>(rootIds);
+        rootIds.forEach(id -> depths.put(id, 0));
+        while (!pending.isEmpty()) {
+            Long id = pending.poll();
+            visitOrder.add(id);
+            for (Long childId : childrenByParent.getOrDefault(id, List.of())) {
+                depths.put(childId, depths.get(id) + 1);
+                pending.add(childId);
+            }
+        }
+
+        // En orden inverso cada hijo ya tiene su subárbol calculado cuando se procesa el padre
+        Map<Long, Node> nodes = new HashMap<>();
+        for (int i = visitOrder.size() - 1; i >= 0; i--) {
+            Long id = visitOrder.get(i);
+            CategoryDTO row = byId.get(id);
+            List<Long> childIds = List.copyOf(childrenByParent.getOrDefault(id, List.of()));
+            Set<Long> subtree = new HashSet<>();
+            subtree.add(id);
+            for (Long childId : childIds) {
+                subtree.addAll(nodes.get(childId).subtreeIds());
+            }
+            Long parentId = rootIds.contains(id) ? null : row.parentId();
+            nodes.put(id, new Node(id, row.name(), row.description(), parentId, depths.get(id),
+                    childIds, Set.copyOf(subtree)));
+        }
+
+        List<Node> roots = rootIds.stream().map(nodes::get).toList();
+        Object[] versionParts = rows.stream()
+                .sorted(Comparator.comparing(CategoryDTO::id))
+                .toArray();
+        return new CategoryTree(Map.copyOf(nodes), roots, ResourceVersion.digest(versionParts));
+    }
+
+    public Optional<Node> find(Long categoryId) {
+        return Optional.ofNullable(nodes.get(categoryId));
+    }
+
+    public List<Node> roots() {
+        return roots;
+    }
+
+    public String version() {
+        return version;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    // La categoría y todas sus descendientes, a cualquier profundidad
+    public Set<Long> subtreeIds(Long categoryId) {
+        Node node = nodes.get(categoryId);
+        return node != null ? node.subtreeIds() : Set.of(categoryId);
+    }
+
+    // true si alguno de los ancestros (sin incluir la propia categoría) está en el conjunto
+    public boolean hasAncestorIn(Long categoryId, Set<Long> candidateIds) {
+        Node node = nodes.get(categoryId);
+        while (node != null && node.parentId() != null) {
+            if (candidateIds.contains(node.parentId())) {
+                return true;
+            }
+            node = nodes.get(node.parentId());
+        }
+        return false;
+    }
+
+    public boolean isDescendantOf(Long categoryId, Long ancestorId) {
+        return !categoryId.equals(ancestorId) && subtreeIds(ancestorId).contains(categoryId);
+    }
+}
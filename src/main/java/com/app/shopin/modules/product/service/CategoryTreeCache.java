@@ -0,0 +1,71 @@
+package com.app.shopin.modules.product.service;
+
+import com.app.shopin.modules.product.repository.CategoryRepository;
+import com.app.shopin.util.TransactionUtils;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Mantiene la instantánea vigente del árbol de categorías.
+ * Las lecturas no se bloquean: las escrituras de CategoryService construyen un árbol nuevo
+ * tras el commit y lo publican de forma atómica.
+ */
+@Component
+public class CategoryTreeCache {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryTreeCache.class);
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicReference<CategoryTree> current = new AtomicReference<>();
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("shopin.categories.tree.size", this, cache -> cache.get().size())
+                .description("Categorías presentes en el árbol en memoria")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    public CategoryTree get() {
+        CategoryTree tree = current.get();
+        if (tree == null) {
+            // Primer acceso antes del arranque completo (p. ej. en tests)
+            synchronized (this) {
+                tree = current.get();
+                if (tree == null) {
+                    tree = rebuild();
+                }
+            }
+        }
+        return tree;
+    }
+
+    public synchronized CategoryTree rebuild() {
+        CategoryTree tree = CategoryTree.build(categoryRepository.findAllAsDto());
+        current.set(tree);
+        log.debug("Árbol de categorías reconstruido: {} categorías", tree.size());
+        return tree;
+    }
+
+    // Se invoca desde las escrituras: la nueva versión se publica solo si la transacción confirma
+    public void invalidate() {
+        TransactionUtils.afterCommit(this::rebuild);
+    }
+}
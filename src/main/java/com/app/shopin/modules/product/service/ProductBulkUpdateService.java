@@ -0,0 +1,168 @@
+package com.app.shopin.modules.product.service;
+
+import com.app.shopin.modules.exception.CustomException;
+import com.app.shopin.modules.pricing.service.PricingService;
+import com.app.shopin.modules.product.dto.BulkDiscountUpdateDTO;
+import com.app.shopin.modules.product.dto.BulkPriceChangeMode;
+import com.app.shopin.modules.product.dto.BulkPriceUpdateDTO;
+import com.app.shopin.modules.product.dto.BulkProductTarget;
+import com.app.shopin.modules.product.dto.BulkUpdateResultDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Cambios de precio y descuento sobre muchos productos a la vez (por ids, por categoría o por prefijo de SKU).
+ * Cada bloque se resuelve con un único UPDATE ... RETURNING id, sin cargar entidades; después se recalculan
+ * los precios efectivos de los productos afectados y se invalida su caché una sola vez.
+ */
+@Service
+public class ProductBulkUpdateService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductBulkUpdateService.class);
+
+    // Límite de parámetros por sentencia cuando la selección es una lista de ids
+    private static final int CHUNK_SIZE = 1000;
+    // Mayor valor que admite la columna price, numeric(10,2)
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+    @Autowired
+    private PricingService pricingService;
+
+    // Condición SQL y parámetros de una selección de productos
+    private record TargetClause(String condition, MapSqlParameterSource params) {}
+
+    /**
+     * Los productos cuyo precio quedaría en cero o negativo (por un porcentaje o importe a la baja)
+     * se dejan sin cambios y no cuentan como actualizados. Si alguno superaría el máximo de la columna,
+     * se rechaza la operación completa con un 400 antes de modificar nada.
+     */
+    @Transactional
+    public BulkUpdateResultDTO updatePrices(BulkPriceUpdateDTO request) {
+        BigDecimal value = request.value();
+        String newPrice = switch (request.mode()) {
+            case SET -> {
+                if (value.signum() <= 0) {
+                    throw new CustomException(HttpStatus.BAD_REQUEST, "El precio debe ser un valor positivo.");
+                }
+                yield ":value";
+            }
+            case PERCENT -> {
+                if (value.compareTo(BigDecimal.valueOf(-100)) <= 0) {
+                    throw new CustomException(HttpStatus.BAD_REQUEST, "El porcentaje debe ser mayor que -100.");
+                }
+                yield "ROUND(price * (100 + :value) / 100, 2)";
+            }
+            case AMOUNT -> "price + :value";
+        };
+        if (request.mode() != BulkPriceChangeMode.SET) {
+            rejectOverflow(newPrice, request.target(), value);
+        }
+
+        String sql = "UPDATE products SET price = " + newPrice + ", updated_at = :now"
+                + " WHERE deleted_at IS NULL AND " + newPrice + " > 0 AND price IS DISTINCT FROM " + newPrice
+                + " AND %s RETURNING id";
+        return execute(sql, request.target(), params -> params.addValue("value", value));
+    }
+
+    @Transactional
+    public BulkUpdateResultDTO updateDiscounts(BulkDiscountUpdateDTO request) {
+        // El tipo explícito permite enviar null (quitar el descuento) sin que PostgreSQL tenga que deducirlo
+        String sql = """
+                UPDATE products SET discount_percent = :discount, updated_at = :now
+                WHERE deleted_at IS NULL AND discount_percent IS DISTINCT FROM :discount AND %s
+                RETURNING id""";
+        return execute(sql, request.target(),
+                params -> params.addValue("discount", request.discountPercent(), Types.INTEGER));
+    }
+
+    private BulkUpdateResultDTO execute(String sqlTemplate, BulkProductTarget target,
+                                        Consumer<MapSqlParameterSource> operationParams) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> updatedIds = new ArrayList<>();
+        for (TargetClause clause : resolveTarget(target)) {
+            clause.params().addValue("now", now);
+            operationParams.accept(clause.params());
+            updatedIds.addAll(namedJdbcTemplate.queryForList(
+                    sqlTemplate.formatted(clause.condition()), clause.params(), Long.class));
+        }
+
+        // También invalida la caché de detalle de todos los productos tocados
+        int repriced = pricingService.recalculateProducts(updatedIds);
+        log.info("Actualización masiva: {} productos modificados, {} precios efectivos recalculados",
+                updatedIds.size(), repriced);
+        return new BulkUpdateResultDTO(updatedIds.size(), repriced);
+    }
+
+    private void rejectOverflow(String newPrice, BulkProductTarget target, BigDecimal value) {
+        String sql = "SELECT EXISTS (SELECT 1 FROM products WHERE deleted_at IS NULL AND " + newPrice
+                + " > :maxPrice AND %s)";
+        for (TargetClause clause : resolveTarget(target)) {
+            clause.params().addValue("value", value).addValue("maxPrice", MAX_PRICE);
+            if (Boolean.TRUE.equals(namedJdbcTemplate.queryForObject(
+                    sql.formatted(clause.condition()), clause.params(), Boolean.class))) {
+                throw new CustomException(HttpStatus.BAD_REQUEST,
+                        "El cambio dejaría algún precio por encima del máximo permitido (" + MAX_PRICE + ").");
+            }
+        }
+    }
+
+    // --- SELECCIÓN DE PRODUCTOS ---
+
+    private List<TargetClause> resolveTarget(BulkProductTarget target) {
+        boolean byIds = target.productIds() != null && !target.productIds().isEmpty();
+        boolean byCategory = target.categoryId() != null;
+        boolean byPrefix = target.skuPrefix() != null && !target.skuPrefix().isBlank();
+        if ((byIds ? 1 : 0) + (byCategory ? 1 : 0) + (byPrefix ? 1 : 0) != 1) {
+            throw new CustomException(HttpStatus.BAD_REQUEST,
+                    "Debe indicar exactamente un criterio: productIds, categoryId o skuPrefix.");
+        }
+
+        if (byIds) {
+            List<Long> ids = List.copyOf(Set.copyOf(target.productIds()));
+            List<TargetClause> clauses = new ArrayList<>();
+            for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+                clauses.add(new TargetClause("id IN (:ids)", new MapSqlParameterSource("ids", chunk)));
+            }
+            return clauses;
+        }
+
+        if (byCategory) {
+            CategoryTree tree = categoryTreeCache.get();
+            if (tree.find(target.categoryId()).isEmpty()) {
+                throw new CustomException(HttpStatus.NOT_FOUND, "Categoría no encontrada.");
+            }
+            Set<Long> categoryIds = Boolean.TRUE.equals(target.includeSubcategories())
+                    ? tree.subtreeIds(target.categoryId())
+                    : Set.of(target.categoryId());
+            return List.of(new TargetClause("category_id IN (:categoryIds)",
+                    new MapSqlParameterSource("categoryIds", categoryIds)));
+        }
+
+        // Los comodines de LIKE que vengan en el prefijo se tratan como texto literal
+        String pattern = target.skuPrefix().trim()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+        return List.of(new TargetClause("sku LIKE :skuPattern", new MapSqlParameterSource("skuPattern", pattern)));
+    }
+}
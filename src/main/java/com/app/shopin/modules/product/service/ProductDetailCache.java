@@ -0,0 +1,65 @@
+package com.app.shopin.modules.product.service;
+
+import com.app.shopin.modules.product.dto.ProductDTO;
+import com.app.shopin.util.TransactionUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * Caché acotada (por tamaño y por tiempo) del detalle de producto.
+ * Caffeine garantiza que, ante un fallo, solo un hilo ejecute la carga de una clave y el resto espere su resultado.
+ */
+@Component
+public class ProductDetailCache {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.cache.max-size:10000}")
+    private long maxSize;
+    @Value("${product.cache.ttl:10m}")
+    private Duration ttl;
+
+    private Cache<Long, ProductDTO> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // Expone cache.gets{result=hit|miss}, cache.evictions, cache.size, ... con la etiqueta cache=productDetail
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "productDetail");
+    }
+
+    public ProductDTO get(Long productId, Function<Long, ProductDTO> loader) {
+        return cache.get(productId, loader);
+    }
+
+    // Se invalida tras el commit para que una lectura concurrente no vuelva a cachear el estado anterior
+    public void evict(Long productId) {
+        TransactionUtils.afterCommit(() -> cache.invalidate(productId));
+    }
+
+    public void evictAll(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> cache.invalidateAll(productIds));
+    }
+
+    public void clear() {
+        TransactionUtils.afterCommit(cache::invalidateAll);
+    }
+}
@@ -0,0 +1,226 @@
+package com.app.shopin.modules.product.service;
+
+import com.app.shopin.modules.pricing.service.PriceCalculator;
+import com.app.shopin.modules.pricing.service.PricingService;
+import com.app.shopin.modules.product.dto.ProductExportRowDTO;
+import com.app.shopin.modules.product.dto.ProductFileFormat;
+import com.app.shopin.util.CsvWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Exportación completa del catálogo en streaming (NDJSON o CSV) para los feeds de marketplaces.
+ * Se recorre la tabla con un cursor del servidor (fetch size) dentro de una transacción de solo lectura
+ * y cada fila se escribe en cuanto se lee: no se crean entidades ni se acumulan filas, así que la memoria
+ * no depende del tamaño del catálogo.
+ */
+@Service
+public class ProductExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductExportService.class);
+
+    private static final int FETCH_SIZE = 500;
+    // Cada cuántas filas se vacía el buffer hacia el cliente
+    private static final int FLUSH_EVERY = 1000;
+
+    // Las URLs de multimedia se agregan con una subconsulta por fila para no romper el streaming con un GROUP BY.
+    // Solo la multimedia lista (como ProductMedia.isReady: status null en filas antiguas); PENDING y FAILED no tienen URL
+    private static final String EXPORT_SQL = """
+            SELECT p.id, p.sku, p.name, p.description, p.price, p.discount_percent,
+                   p.effective_price, p.effective_discount_percent, p.stock_quantity, p.category_id,
+                   p.created_at, p.updated_at, p.deleted_at,
+                   ARRAY(SELECT m.url FROM product_media m
+                         WHERE m.product_id = p.id AND (m.status IS NULL OR m.status = 'READY')
+                         ORDER BY m.id) AS media_urls
+            FROM products p
+            """;
+    private static final String ACTIVE_ONLY = "WHERE p.deleted_at IS NULL\n";
+    private static final String ORDER_BY = "ORDER BY p.id";
+
+    private static final String[] CSV_HEADER = {
+            "id", "sku", "name", "description", "price", "discountPercent", "effectivePrice",
+            "effectiveDiscountPercent", "stockQuantity", "categoryId", "categoryPath", "mediaUrls",
+            "createdAt", "updatedAt", "deletedAt"};
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+    @Autowired
+    private PricingService pricingService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private JdbcTemplate cursorJdbcTemplate;
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void init() {
+        // PostgreSQL solo usa cursor (en lugar de traer todo el resultado) con fetch size y sin autocommit
+        cursorJdbcTemplate = new JdbcTemplate(dataSource);
+        cursorJdbcTemplate.setFetchSize(FETCH_SIZE);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    public void exportProducts(OutputStream out, ProductFileFormat format, boolean includeDeleted) {
+        long start = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        RowWriter rowWriter;
+        try {
+            rowWriter = format == ProductFileFormat.CSV ? csvWriter(writer) : ndjsonWriter(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        CategoryPaths categoryPaths = new CategoryPaths(categoryTreeCache.get());
+        String sql = EXPORT_SQL + (includeDeleted ? "" : ACTIVE_ONLY) + ORDER_BY;
+        long[] rows = {0};
+
+        readOnlyTransaction.executeWithoutResult(status -> cursorJdbcTemplate.query(sql, rs -> {
+            try {
+                rowWriter.write(mapRow(rs, categoryPaths));
+                if (++rows[0] % FLUSH_EVERY == 0) {
+                    writer.flush();
+                }
+            } catch (IOException e) {
+                // Normalmente el cliente cerró la conexión: se aborta la consulta
+                throw new UncheckedIOException(e);
+            }
+        }));
+
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Exportación del catálogo ({}): {} productos en {} ms",
+                format, rows[0], System.currentTimeMillis() - start);
+    }
+
+    private ProductExportRowDTO mapRow(ResultSet rs, CategoryPaths categoryPaths) throws SQLException {
+        BigDecimal price = rs.getBigDecimal("price");
+        Integer discountPercent = rs.getObject("discount_percent", Integer.class);
+        BigDecimal effectivePrice = rs.getBigDecimal("effective_price");
+        Integer effectiveDiscount = rs.getObject("effective_discount_percent", Integer.class);
+        // Sin categoría la columna es NULL: getLong devolvería 0
+        Long categoryId = rs.getObject("category_id", Long.class);
+        // Filas que PricingService aún no ha calculado: misma resolución que PricingService.effectivePrice
+        if (effectivePrice == null) {
+            effectiveDiscount = pricingService.currentDiscount(rs.getLong("id"), categoryId, discountPercent);
+            effectivePrice = PriceCalculator.applyDiscount(price, effectiveDiscount);
+        }
+
+        return new ProductExportRowDTO(
+                rs.getLong("id"),
+                rs.getString("sku"),
+                rs.getString("name"),
+                rs.getString("description"),
+                price,
+                discountPercent,
+                effectivePrice,
+                effectiveDiscount,
+                rs.getInt("stock_quantity"),
+                categoryId,
+                categoryPaths.of(categoryId),
+                mediaUrls(rs.getArray("media_urls")),
+                toDateTime(rs.getTimestamp("created_at")),
+                toDateTime(rs.getTimestamp("updated_at")),
+                toDateTime(rs.getTimestamp("deleted_at")));
+    }
+
+    private static List<String> mediaUrls(Array array) throws SQLException {
+        if (array == null) {
+            return List.of();
+        }
+        try {
+            return Arrays.asList((String[]) array.getArray());
+        } finally {
+            array.free();
+        }
+    }
+
+    private static LocalDateTime toDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    // --- FORMATOS DE SALIDA ---
+
+    private interface RowWriter {
+        void write(ProductExportRowDTO row) throws IOException;
+    }
+
+    private RowWriter ndjsonWriter(Writer writer) {
+        return row -> {
+            writer.write(objectMapper.writeValueAsString(row));
+            writer.write('\n');
+        };
+    }
+
+    // La cabecera se escribe siempre, aunque el catálogo esté vacío
+    private RowWriter csvWriter(Writer writer) throws IOException {
+        CsvWriter csv = new CsvWriter(writer);
+        csv.writeRecord((Object[]) CSV_HEADER);
+        return row -> csv.writeRecord(row.id(), row.sku(), row.name(), row.description(), row.price(),
+                row.discountPercent(), row.effectivePrice(), row.effectiveDiscountPercent(),
+                row.stockQuantity(), row.categoryId(), row.categoryPath(),
+                String.join("|", row.mediaUrls()), row.createdAt(), row.updatedAt(), row.deletedAt());
+    }
+
+    /**
+     * Ruta de nombres de cada categoría, resuelta desde el árbol en memoria y memorizada:
+     * el número de entradas está acotado por el número de categorías, no por el de productos.
+     */
+    private static final class CategoryPaths {
+
+        private final CategoryTree tree;
+        private final Map<Long, String> paths = new HashMap<>();
+
+        CategoryPaths(CategoryTree tree) {
+            this.tree = tree;
+        }
+
+        String of(Long categoryId) {
+            if (categoryId == null) {
+                return null;
+            }
+            return paths.computeIfAbsent(categoryId, this::resolve);
+        }
+
+        private String resolve(Long categoryId) {
+            Deque<String> names = new ArrayDeque<>();
+            Optional<CategoryTree.Node> node = tree.find(categoryId);
+            while (node.isPresent()) {
+                names.addFirst(node.get().name());
+                Long parentId = node.get().parentId();
+                node = parentId != null ? tree.find(parentId) : Optional.empty();
+            }
+            // Categoría borrada o fuera del árbol
+            return names.isEmpty() ? null : String.join(" > ", names);
+        }
+    }
+}
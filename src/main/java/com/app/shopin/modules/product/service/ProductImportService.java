@@ -0,0 +1,341 @@
+package com.app.shopin.modules.product.service;
+
+import com.app.shopin.modules.exception.CustomException;
+import com.app.shopin.modules.pricing.service.PriceCalculator;
+import com.app.shopin.modules.pricing.service.PricingService;
+import com.app.shopin.modules.product.dto.*;
+import com.app.shopin.util.CsvReader;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Importación masiva de productos en streaming (CSV o NDJSON).
+ * Las filas se validan a medida que se leen y se insertan por bloques, cada bloque en su propia transacción:
+ * una consulta para los SKU existentes, las categorías desde el árbol en memoria y un INSERT por lotes JDBC.
+ * La memoria usada depende del tamaño del bloque, no del tamaño del archivo.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImportService.class);
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String INSERT_SQL = """
+            INSERT INTO products (sku, name, description, price, discount_percent, effective_price,
+                                  effective_discount_percent, stock_quantity, category_id, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final Set<String> REQUIRED_COLUMNS = Set.of("sku", "name", "price", "stockquantity", "categoryid");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+    @Autowired
+    private PricingService pricingService;
+    @Autowired
+    private Validator validator;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter importedProducts;
+
+    @PostConstruct
+    void registerMetrics() {
+        importedProducts = Counter.builder("shopin.products.imported")
+                .description("Productos creados por la importación masiva")
+                .register(meterRegistry);
+    }
+
+    // Fila leída del archivo junto con su número de línea, para el informe de errores
+    private record ImportRow(long line, ProductDTO product) {}
+
+    public ProductImportReportDTO importProducts(InputStream body, ProductFileFormat format) {
+        long start = System.currentTimeMillis();
+        ImportProgress progress = new ImportProgress();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            List<ImportRow> chunk = new ArrayList<>(CHUNK_SIZE);
+            RowSource source = format == ProductFileFormat.CSV ? csvSource(reader) : ndjsonSource(reader);
+
+            try {
+                ImportRow row;
+                while ((row = source.next(progress)) != null) {
+                    progress.totalRows++;
+                    if (isValid(row, progress)) {
+                        chunk.add(row);
+                    }
+                    if (chunk.size() == CHUNK_SIZE) {
+                        processChunk(chunk, progress);
+                        chunk.clear();
+                    }
+                }
+            } catch (CsvReader.MalformedRecordException e) {
+                // Los bloques anteriores ya están confirmados: se termina con las filas válidas leídas
+                // y el informe indica dónde se cortó, en lugar de responder 400 con datos ya escritos
+                progress.reject(e.getLine(), null, e.getMessage() + ". No se leyó el resto del archivo.");
+                progress.complete = false;
+            }
+            if (!chunk.isEmpty()) {
+                processChunk(chunk, progress);
+            }
+        } catch (IOException e) {
+            throw new CustomException(HttpStatus.BAD_REQUEST, "No se pudo leer el archivo de importación: " + e.getMessage());
+        }
+
+        long duration = System.currentTimeMillis() - start;
+        log.info("Importación terminada{}: {} filas, {} productos creados, {} rechazadas en {} ms",
+                progress.complete ? "" : " (interrumpida)", progress.totalRows, progress.imported, progress.rejected, duration);
+        return new ProductImportReportDTO(progress.totalRows, progress.imported, progress.rejected,
+                progress.errors, progress.rejected > progress.errors.size(), progress.complete, duration);
+    }
+
+    // --- LECTURA DE FILAS ---
+
+    private interface RowSource {
+        // Devuelve null al terminar; las filas ilegibles se registran como error y se saltan
+        ImportRow next(ImportProgress progress) throws IOException;
+    }
+
+    private RowSource csvSource(BufferedReader reader) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            throw new CustomException(HttpStatus.BAD_REQUEST, "El archivo está vacío.");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().replace("_", "").toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.keySet().containsAll(REQUIRED_COLUMNS)) {
+            throw new CustomException(HttpStatus.BAD_REQUEST,
+                    "La cabecera del CSV debe incluir las columnas: sku, name, price, stockQuantity, categoryId.");
+        }
+
+        return progress -> {
+            while (true) {
+                List<String> record = csv.readRecord();
+                if (record == null) {
+                    return null;
+                }
+                long line = csv.getRecordLine();
+                try {
+                    ProductDTO product = new ProductDTO(
+                            null,
+                            column(record, columns, "sku"),
+                            column(record, columns, "name"),
+                            null,
+                            column(record, columns, "description"),
+                            decimal(column(record, columns, "price")),
+                            integer(column(record, columns, "discountpercent")),
+                            null,
+                            integer(column(record, columns, "stockquantity")),
+                            longValue(column(record, columns, "categoryid")));
+                    return new ImportRow(line, product);
+                } catch (NumberFormatException e) {
+                    progress.reject(line, column(record, columns, "sku"), "Valor numérico no válido: " + e.getMessage());
+                    progress.totalRows++;
+                }
+            }
+        };
+    }
+
+    private RowSource ndjsonSource(BufferedReader reader) {
+        long[] lineNumber = {0};
+        return progress -> {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                lineNumber[0]++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                try {
+                    return new ImportRow(lineNumber[0], objectMapper.readValue(text, ProductDTO.class));
+                } catch (JsonProcessingException e) {
+                    progress.reject(lineNumber[0], null, "JSON no válido: " + e.getOriginalMessage());
+                    progress.totalRows++;
+                }
+            }
+            return null;
+        };
+    }
+
+    // --- VALIDACIÓN ---
+
+    private boolean isValid(ImportRow row, ImportProgress progress) {
+        ProductDTO product = row.product();
+        Set<ConstraintViolation<ProductDTO>> violations = validator.validate(product);
+        if (!violations.isEmpty()) {
+            String message = violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            progress.reject(row.line(), product.sku(), message);
+            return false;
+        }
+        if (categoryTreeCache.get().find(product.categoryId()).isEmpty()) {
+            progress.reject(row.line(), product.sku(), "La categoría " + product.categoryId() + " no existe.");
+            return false;
+        }
+        return true;
+    }
+
+    // --- INSERCIÓN POR BLOQUES ---
+
+    private void processChunk(List<ImportRow> chunk, ImportProgress progress) {
+        try {
+            List<ImportRow> duplicates = transactionTemplate.execute(status -> insertChunk(chunk));
+            for (ImportRow row : duplicates) {
+                progress.reject(row.line(), row.product().sku(), "El SKU ya existe.");
+            }
+            int inserted = chunk.size() - duplicates.size();
+            progress.imported += inserted;
+            importedProducts.increment(inserted);
+        } catch (DataAccessException e) {
+            // El bloque se revierte completo; sus filas se informan como rechazadas
+            log.warn("Bloque de importación revertido: {}", e.getMostSpecificCause().getMessage());
+            for (ImportRow row : chunk) {
+                progress.reject(row.line(), row.product().sku(), "Error al insertar el bloque: " + e.getMostSpecificCause().getMessage());
+            }
+        }
+        log.info("Importación en curso: {} filas leídas, {} productos creados, {} rechazadas",
+                progress.totalRows, progress.imported, progress.rejected);
+    }
+
+    // Inserta el bloque y devuelve las filas descartadas por SKU repetido
+    private List<ImportRow> insertChunk(List<ImportRow> chunk) {
+        // Una sola consulta por bloque; incluye productos dados de baja, porque el SKU es único en la tabla
+        Set<String> skus = chunk.stream().map(row -> row.product().sku()).collect(Collectors.toSet());
+        Set<String> taken = new HashSet<>(namedJdbcTemplate.queryForList(
+                "SELECT sku FROM products WHERE sku IN (:skus)", Map.of("skus", skus), String.class));
+
+        List<ImportRow> toInsert = new ArrayList<>(chunk.size());
+        List<ImportRow> duplicates = new ArrayList<>();
+        for (ImportRow row : chunk) {
+            // add() también detecta SKU repetidos dentro del propio archivo
+            if (!taken.add(row.product().sku())) {
+                duplicates.add(row);
+            } else {
+                toInsert.add(row);
+            }
+        }
+        if (toInsert.isEmpty()) {
+            return duplicates;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ProductDTO product = toInsert.get(i).product();
+                        // Producto nuevo: sin promociones propias todavía, pero sí las de su categoría y ancestros,
+                        // resueltas con el índice en memoria (sin consultas por fila)
+                        int discount = pricingService.currentDiscount(null, product.categoryId(), product.discountPercent());
+                        ps.setString(1, product.sku());
+                        ps.setString(2, product.name());
+                        ps.setString(3, product.description());
+                        ps.setBigDecimal(4, product.price());
+                        ps.setObject(5, product.discountPercent(), Types.INTEGER);
+                        ps.setBigDecimal(6, PriceCalculator.applyDiscount(product.price(), discount));
+                        ps.setInt(7, discount);
+                        ps.setInt(8, product.stockQuantity());
+                        ps.setLong(9, product.categoryId());
+                        ps.setTimestamp(10, now);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return toInsert.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < toInsert.size(); i++) {
+            ProductDTO product = toInsert.get(i).product();
+            Long id = ((Number) keys.get(i).get("id")).longValue();
+            productSearchIndex.index(new ProductSearchDocument(id, product.sku(), product.name(), product.description()));
+        }
+        return duplicates;
+    }
+
+    // --- AYUDAS DE CONVERSIÓN ---
+
+    private static String column(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static BigDecimal decimal(String value) {
+        return value != null ? new BigDecimal(value) : null;
+    }
+
+    private static Integer integer(String value) {
+        return value != null ? Integer.valueOf(value) : null;
+    }
+
+    private static Long longValue(String value) {
+        return value != null ? Long.valueOf(value) : null;
+    }
+
+    private static final class ImportProgress {
+        long totalRows;
+        long imported;
+        long rejected;
+        boolean complete = true;
+        final List<ProductImportErrorDTO> errors = new ArrayList<>();
+
+        void reject(long line, String sku, String message) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ProductImportErrorDTO(line, sku, message));
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.app.shopin.modules.product.service;
+
+import com.app.shopin.modules.exception.CustomException;
+import com.app.shopin.modules.product.dto.MediaUploadRequestDTO;
+import com.app.shopin.modules.product.dto.MediaUploadSessionDTO;
+import com.app.shopin.modules.product.dto.ProductMediaDTO;
+import com.app.shopin.services.storage.FileSignatures;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Subidas reanudables de multimedia (pensadas para videos grandes): el cliente abre una sesión con el tamaño total
+ * y envía el archivo por trozos indicando el offset de cada uno. Cada trozo se escribe en streaming a un temporal;
+ * si la conexión se corta, el cliente consulta el offset y continúa desde ahí. Al recibir el último byte el archivo
+ * pasa a {@link ProductMediaUploader} como cualquier otra subida, si su contenido es del tipo declarado.
+ * Cada sesión pertenece al usuario que la abrió, con un límite de sesiones abiertas y de bytes declarados por usuario.
+ * Las sesiones viven en memoria de esta instancia y caducan tras un periodo sin actividad.
+ */
+@Component
+public class ProductMediaUploadSessions {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductMediaUploadSessions.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private ProductService productService;
+
+    @Value("${product.media.resumable.max-size:2GB}")
+    private DataSize maxSize;
+    @Value("${product.media.resumable.ttl:24h}")
+    private Duration ttl;
+    @Value("${product.media.resumable.max-sessions-per-user:5}")
+    private int maxSessionsPerUser;
+    @Value("${product.media.resumable.max-bytes-per-user:4GB}")
+    private DataSize maxBytesPerUser;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    private static final class Session {
+        final String id;
+        final String owner;
+        final Long productId;
+        final boolean video;
+        final long totalBytes;
+        final Path file;
+        long offset;
+        volatile Instant lastActivity = Instant.now();
+        volatile boolean completed;
+        ProductMediaDTO media;
+
+        Session(String id, String owner, Long productId, boolean video, long totalBytes, Path file) {
+            this.id = id;
+            this.owner = owner;
+            this.productId = productId;
+            this.video = video;
+            this.totalBytes = totalBytes;
+            this.file = file;
+        }
+
+        MediaUploadSessionDTO toDto() {
+            return new MediaUploadSessionDTO(id, productId, offset, totalBytes, completed, media);
+        }
+    }
+
+    public MediaUploadSessionDTO start(Long productId, MediaUploadRequestDTO request, String owner) {
+        String contentType = request.contentType().toLowerCase();
+        boolean video = contentType.startsWith("video/");
+        if (!video && !contentType.startsWith("image/")) {
+            throw new CustomException(HttpStatus.BAD_REQUEST, "El archivo debe ser una imagen o un video.");
+        }
+        if (request.totalBytes() > maxSize.toBytes()) {
+            throw new CustomException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "El archivo supera el tamaño máximo permitido (" + maxSize.toMegabytes() + " MB).");
+        }
+        productService.checkMediaLimits(productId, video);
+
+        // Comprobación y alta juntas, para que dos peticiones simultáneas no superen el límite
+        synchronized (sessions) {
+            List<Session> open = sessions.values().stream()
+                    .filter(session -> session.owner.equals(owner) && !session.completed)
+                    .toList();
+            long declaredBytes = open.stream().mapToLong(session -> session.totalBytes).sum();
+            if (open.size() >= maxSessionsPerUser || declaredBytes + request.totalBytes() > maxBytesPerUser.toBytes()) {
+                throw new CustomException(HttpStatus.TOO_MANY_REQUESTS,
+                        "Demasiadas subidas en curso: termina o cancela alguna antes de empezar otra.");
+            }
+
+            Path file;
+            try {
+                file = Files.createTempFile("shopin-upload-", null);
+            } catch (IOException e) {
+                log.error("No se pudo crear el temporal de la subida reanudable", e);
+                throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "No se pudo iniciar la subida.");
+            }
+            Session session = new Session(UUID.randomUUID().toString(), owner, productId, video, request.totalBytes(), file);
+            sessions.put(session.id, session);
+            return session.toDto();
+        }
+    }
+
+    /**
+     * Añade un trozo que empieza en offset. Un offset distinto del que tiene el servidor se rechaza con 409
+     * (el cliente debe consultar el estado y reanudar desde ahí).
+     */
+    public MediaUploadSessionDTO append(Long productId, String uploadId, String owner, long offset, InputStream body) {
+        Session session = find(productId, uploadId, owner);
+        synchronized (session) {
+            if (session.completed) {
+                return session.toDto();
+            }
+            if (offset != session.offset) {
+                throw new CustomException(HttpStatus.CONFLICT,
+                        "El offset no coincide: el servidor tiene " + session.offset + " bytes de esta subida.");
+            }
+
+            try (OutputStream out = Files.newOutputStream(session.file, StandardOpenOption.APPEND)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = body.read(buffer)) != -1) {
+                    if (session.offset + read > session.totalBytes) {
+                        throw new CustomException(HttpStatus.BAD_REQUEST, "El trozo supera el tamaño total declarado.");
+                    }
+                    out.write(buffer, 0, read);
+                    session.offset += read;
+                }
+            } catch (IOException e) {
+                // Conexión cortada: lo escrito hasta aquí se conserva y el cliente reanuda desde el nuevo offset
+                log.warn("Trozo incompleto en la subida {}: {} de {} bytes", uploadId, session.offset, session.totalBytes);
+                syncOffset(session);
+            }
+            session.lastActivity = Instant.now();
+
+            if (session.offset == session.totalBytes) {
+                complete(session);
+            }
+            return session.toDto();
+        }
+    }
+
+    public MediaUploadSessionDTO status(Long productId, String uploadId, String owner) {
+        return find(productId, uploadId, owner).toDto();
+    }
+
+    public void cancel(Long productId, String uploadId, String owner) {
+        Session session = find(productId, uploadId, owner);
+        synchronized (session) {
+            sessions.remove(uploadId);
+            if (!session.completed) {
+                deleteFile(session.file);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${product.media.resumable.cleanup-interval-ms:600000}")
+    public void expireSessions() {
+        Instant limit = Instant.now().minus(ttl);
+        sessions.values().stream()
+                .filter(session -> session.lastActivity.isBefore(limit))
+                .forEach(session -> {
+                    synchronized (session) {
+                        sessions.remove(session.id);
+                        if (!session.completed) {
+                            deleteFile(session.file);
+                        }
+                    }
+                });
+    }
+
+    private void complete(Session session) {
+        try {
+            // Mismo criterio que el resto del almacenamiento: el tipo sale del contenido, no de lo declarado
+            String detected = FileSignatures.detectContentType(session.file);
+            if (!detected.startsWith(session.video ? "video/" : "image/")) {
+                throw new CustomException(HttpStatus.BAD_REQUEST, "El contenido del archivo no es "
+                        + (session.video ? "un video" : "una imagen") + " válido.");
+            }
+            // A partir de aquí el archivo pertenece al uploader
+            session.media = productService.completeMediaUpload(session.productId, session.file, session.video);
+            session.completed = true;
+        } catch (IOException | RuntimeException e) {
+            // Contenido no válido, límites superados mientras tanto o error al registrar: la sesión no se puede reanudar
+            sessions.remove(session.id);
+            deleteFile(session.file);
+            if (e instanceof IOException) {
+                log.error("No se pudo leer el archivo de la subida {}", session.id, e);
+                throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al leer el archivo.");
+            }
+            throw (RuntimeException) e;
+        }
+    }
+
+    // Las sesiones de otros usuarios se tratan como inexistentes
+    private Session find(Long productId, String uploadId, String owner) {
+        Session session = sessions.get(uploadId);
+        if (session == null || !session.productId.equals(productId) || !session.owner.equals(owner)) {
+            throw new CustomException(HttpStatus.NOT_FOUND, "Subida no encontrada o caducada.");
+        }
+        return session;
+    }
+
+    private void syncOffset(Session session) {
+        try {
+            session.offset = Files.size(session.file);
+        } catch (IOException e) {
+            log.warn("No se pudo leer el tamaño del temporal {}", session.file, e);
+        }
+    }
+
+    private void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar el temporal {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.app.shopin.modules.product.service;
+
+import com.app.shopin.modules.exception.CustomException;
+import com.app.shopin.modules.media.service.MediaDeletionQueue;
+import com.app.shopin.modules.product.entity.MediaVariants;
+import com.app.shopin.modules.product.entity.Product;
+import com.app.shopin.modules.product.entity.ProductMedia;
+import com.app.shopin.modules.product.enums.MediaStatus;
+import com.app.shopin.modules.product.repository.ProductMediaRepository;
+import com.app.shopin.modules.product.repository.ProductRepository;
+import com.app.shopin.services.cloudinary.ImageType;
+import com.app.shopin.services.cloudinary.StorageService;
+import com.app.shopin.util.TransactionUtils;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Subida de la multimedia de productos fuera de la transacción de la petición.
+ * El archivo se copia a un temporal y se registra un ProductMedia en estado PENDING; tras el commit la subida
+ * se hace en un pool acotado (varios archivos del mismo producto en paralelo) y cada fila se completa con su URL
+ * en una transacción corta. Así ninguna conexión a la base de datos queda retenida durante la E/S remota.
+ * Las filas que siguen PENDING pasado un tiempo máximo (subida perdida en un reinicio) se marcan como FAILED.
+ */
+@Component
+public class ProductMediaUploader {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductMediaUploader.class);
+
+    private static final String FOLDER = "products";
+
+    @Autowired
+    private StorageService storageService;
+    @Autowired
+    private MediaDeletionQueue mediaDeletionQueue;
+    @Autowired
+    private ProductMediaRepository productMediaRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProductDetailCache productDetailCache;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.media.upload-threads:4}")
+    private int uploadThreads;
+    @Value("${product.media.upload-queue-capacity:200}")
+    private int queueCapacity;
+    @Value("${product.media.pending-timeout:1h}")
+    private Duration pendingTimeout;
+
+    private ThreadPoolExecutor executor;
+    private Timer uploadTimer;
+    // Se usa desde afterCommit (y desde el hilo de la petición si sube él mismo): necesita su propia transacción
+    private TransactionTemplate uploadTransaction;
+
+    @PostConstruct
+    void init() {
+        uploadTransaction = new TransactionTemplate(transactionManager);
+        uploadTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Con la cola llena la subida la hace el propio hilo que la pide: frena a los clientes en lugar de perder archivos.
+        // Con el pool ya detenido se rechaza (CallerRunsPolicy la descartaría sin avisar) y stage() limpia.
+        executor = new ThreadPoolExecutor(uploadThreads, uploadThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "media-upload-" + threadNumber.incrementAndGet()),
+                (runnable, pool) -> {
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException("Pool de subidas detenido");
+                    }
+                    runnable.run();
+                });
+
+        Gauge.builder("shopin.media.upload.queue", executor, e -> e.getQueue().size())
+                .description("Subidas de multimedia esperando un hilo libre")
+                .register(meterRegistry);
+        uploadTimer = Timer.builder("shopin.media.upload")
+                .description("Duración de la subida de cada archivo al almacenamiento")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Subidas de multimedia sin terminar al apagar: quedarán en estado PENDING");
+        }
+    }
+
+    /**
+     * Registra el archivo como multimedia PENDING del producto (que ya debe estar persistido) y programa
+     * su subida para después del commit. Se llama dentro de la transacción de la petición.
+     */
+    public ProductMedia stage(Product product, MultipartFile file) {
+        boolean isVideo = storageService.isVideoFile(file);
+        if (!isVideo && !storageService.isImageFile(file)) {
+            throw new CustomException(HttpStatus.BAD_REQUEST, "El archivo proporcionado no es una imagen ni un video válido.");
+        }
+
+        // El temporal del multipart se borra al terminar la petición: se necesita una copia propia
+        Path tempFile;
+        try {
+            tempFile = Files.createTempFile("shopin-media-", null);
+            file.transferTo(tempFile);
+        } catch (IOException e) {
+            log.error("No se pudo guardar temporalmente el archivo {}", file.getOriginalFilename(), e);
+            throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al leer el archivo.");
+        }
+        return stage(product, tempFile, isVideo);
+    }
+
+    /**
+     * Igual que {@link #stage(Product, MultipartFile)} para un archivo ya guardado en disco (p. ej. una subida
+     * reanudable terminada). El uploader pasa a ser dueño del archivo y lo borra al terminar.
+     */
+    public ProductMedia stage(Product product, Path tempFile, boolean isVideo) {
+        ProductMedia media = new ProductMedia();
+        media.setProduct(product);
+        media.setMediaType(isVideo ? "VIDEO" : "IMAGE");
+        media.setStatus(MediaStatus.PENDING);
+        product.getMedia().add(media);
+        // persist inmediato para tener el id antes del commit
+        productMediaRepository.save(media);
+
+        Long productId = product.getId();
+        Long mediaId = media.getId();
+        TransactionUtils.afterCommit(() -> {
+            try {
+                executor.execute(() -> upload(productId, mediaId, tempFile, isVideo));
+            } catch (RejectedExecutionException e) {
+                log.warn("Subida de la multimedia {} rechazada al apagar: se marca como FAILED", mediaId);
+                deleteTempFile(tempFile);
+                markFailed(productId, mediaId);
+            }
+        });
+        TransactionUtils.afterRollback(() -> deleteTempFile(tempFile));
+        return media;
+    }
+
+    // Subidas perdidas (temporal borrado o servidor detenido antes de subir): no van a completarse nunca
+    @Scheduled(fixedDelayString = "${product.media.pending-sweep-interval-ms:600000}")
+    public void failAbandonedUploads() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(pendingTimeout);
+        Integer failed = uploadTransaction.execute(status -> {
+            List<Long> productIds = productMediaRepository.findProductIdsWithPendingBefore(MediaStatus.PENDING, cutoff);
+            if (productIds.isEmpty()) {
+                return 0;
+            }
+            // Cambia el estado visible del producto: se renueva su versión (ETag / Last-Modified)
+            productRepository.touchAll(productIds, LocalDateTime.now());
+            productDetailCache.evictAll(productIds);
+            return productMediaRepository.failPendingBefore(cutoff, MediaStatus.FAILED, MediaStatus.PENDING);
+        });
+        if (failed != null && failed > 0) {
+            log.warn("{} subidas de multimedia PENDING desde hace más de {} marcadas como FAILED", failed, pendingTimeout);
+        }
+    }
+
+    /**
+     * Encola el borrado del archivo remoto en la transacción que retira la multimedia: solo se borra si confirma,
+     * y la cola lo reintenta hasta conseguirlo.
+     */
+    public void releaseStorage(ProductMedia media) {
+        String publicId = media.getPublicId();
+        if (publicId == null) {
+            return; // Aún pendiente: la propia subida detecta que la fila ya no existe y limpia
+        }
+        mediaDeletionQueue.enqueue(publicId, media.getMediaType().toLowerCase());
+    }
+
+    private void upload(Long productId, Long mediaId, Path tempFile, boolean isVideo) {
+        try {
+            Map<String, String> fileData = uploadTimer.record(() -> isVideo
+                    ? storageService.uploadVideo(tempFile, FOLDER)
+                    : storageService.uploadImage(tempFile, FOLDER, ImageType.PRODUCT));
+            MediaVariants variants = isVideo ? null
+                    : MediaVariants.of(storageService.imageVariantUrls(fileData.get("publicId")));
+
+            Boolean completed = uploadTransaction.execute(status -> {
+                int updated = productMediaRepository.completeUpload(mediaId, fileData.get("url"),
+                        fileData.get("publicId"), MediaStatus.READY, MediaStatus.PENDING);
+                if (updated == 1) {
+                    if (variants != null) {
+                        productMediaRepository.findById(mediaId).ifPresent(media -> media.setVariants(variants));
+                    }
+                    productRepository.touch(productId, LocalDateTime.now());
+                }
+                return updated == 1;
+            });
+            if (!Boolean.TRUE.equals(completed)) {
+                // La multimedia se borró o reemplazó durante la subida: el archivo remoto queda huérfano
+                mediaDeletionQueue.enqueue(fileData.get("publicId"), isVideo ? "video" : "image");
+            }
+        } catch (RuntimeException e) {
+            log.error("Falló la subida de la multimedia {} del producto {}", mediaId, productId, e);
+            markFailed(productId, mediaId);
+        } finally {
+            deleteTempFile(tempFile);
+            productDetailCache.evict(productId);
+        }
+    }
+
+    // Como al completar, el cambio de estado renueva la versión del producto para que los GET condicionales lo vean
+    private void markFailed(Long productId, Long mediaId) {
+        uploadTransaction.executeWithoutResult(status -> {
+            if (productMediaRepository.failUpload(mediaId, MediaStatus.FAILED, MediaStatus.PENDING) == 1) {
+                productRepository.touch(productId, LocalDateTime.now());
+            }
+            productDetailCache.evict(productId);
+        });
+    }
+
+    private void deleteTempFile(Path tempFile) {
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar el temporal {}", tempFile, e);
+        }
+    }
+}
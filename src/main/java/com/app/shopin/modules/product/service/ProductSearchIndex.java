@@ -0,0 +1,289 @@
+package com.app.shopin.modules.product.service;
+
+import com.app.shopin.modules.product.dto.ProductSearchDocument;
+import com.app.shopin.modules.product.entity.Product;
+import com.app.shopin.modules.product.repository.ProductRepository;
+import com.app.shopin.util.TransactionUtils;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido en memoria sobre el nombre, la descripción y el SKU de los productos.
+ * Resuelve una búsqueda de texto a una lista de IDs ordenada por relevancia, sin tocar la base de datos.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final int SKU_WEIGHT = 5;
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    // Una coincidencia exacta del término vale el doble que una coincidencia por prefijo.
+    private static final int EXACT_MATCH_FACTOR = 2;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // término -> (productId -> peso)
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    // productId -> (término -> peso), necesario para las actualizaciones incrementales
+    private final Map<Long, Map<String, Integer>> documents = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Cambios incrementales aplicados mientras se reconstruye: se repiten sobre el índice nuevo (null si no hay reconstrucción)
+    private List<Change> changesDuringRebuild;
+
+    // Alta/modificación (document != null) o baja de un producto
+    private record Change(Long productId, ProductSearchDocument document) {}
+
+    private Timer rebuildTimer;
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("shopin.search.index.documents", this, index -> index.documentCount())
+                .description("Productos presentes en el índice de búsqueda")
+                .register(meterRegistry);
+        Gauge.builder("shopin.search.index.terms", this, index -> index.termCount())
+                .description("Términos distintos en el índice de búsqueda")
+                .register(meterRegistry);
+        rebuildTimer = Timer.builder("shopin.search.index.rebuild")
+                .description("Tiempo de reconstrucción completa del índice de búsqueda")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Reconstrucción nocturna para corregir cualquier desviación de las actualizaciones incrementales.
+     * La instantánea se lee sin bloquear las búsquedas; los cambios que llegan mientras tanto se registran y se
+     * repiten sobre el índice nuevo al publicarlo (repetir uno que ya estaba en la instantánea no cambia nada).
+     */
+    @Scheduled(cron = "0 30 3 * * ?")
+    public synchronized void rebuild() {
+        rebuildTimer.record(() -> {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            List<ProductSearchDocument> all;
+            try {
+                all = productRepository.findAllSearchDocuments();
+            } catch (RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    changesDuringRebuild = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+
+            NavigableMap<String, Map<Long, Integer>> newPostings = new TreeMap<>();
+            Map<Long, Map<String, Integer>> newDocuments = new HashMap<>(all.size() * 2);
+            for (ProductSearchDocument document : all) {
+                Map<String, Integer> terms = analyze(document);
+                newDocuments.put(document.id(), terms);
+                terms.forEach((term, weight) ->
+                        newPostings.computeIfAbsent(term, t -> new HashMap<>()).put(document.id(), weight));
+            }
+
+            int replayed;
+            lock.writeLock().lock();
+            try {
+                postings.clear();
+                postings.putAll(newPostings);
+                documents.clear();
+                documents.putAll(newDocuments);
+                List<Change> changes = changesDuringRebuild;
+                changesDuringRebuild = null;
+                changes.forEach(this::applyUnlocked);
+                replayed = changes.size();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Índice de búsqueda reconstruido: {} productos, {} términos, {} cambios repetidos",
+                    newDocuments.size(), newPostings.size(), replayed);
+        });
+    }
+
+    // --- ACTUALIZACIONES INCREMENTALES ---
+    // Se aplican al hacer commit para que el índice no refleje cambios que terminan en rollback.
+
+    public void index(Product product) {
+        index(new ProductSearchDocument(product.getId(), product.getSku(), product.getName(), product.getDescription()));
+    }
+
+    public void index(ProductSearchDocument document) {
+        TransactionUtils.afterCommit(() -> apply(new Change(document.id(), document)));
+    }
+
+    public void remove(Long productId) {
+        TransactionUtils.afterCommit(() -> apply(new Change(productId, null)));
+    }
+
+    private void apply(Change change) {
+        lock.writeLock().lock();
+        try {
+            applyUnlocked(change);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void applyUnlocked(Change change) {
+        removeUnlocked(change.productId());
+        if (change.document() == null) {
+            return;
+        }
+        Map<String, Integer> terms = analyze(change.document());
+        documents.put(change.productId(), terms);
+        terms.forEach((term, weight) ->
+                postings.computeIfAbsent(term, t -> new HashMap<>()).put(change.productId(), weight));
+    }
+
+    private void removeUnlocked(Long productId) {
+        Map<String, Integer> previous = documents.remove(productId);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.keySet()) {
+            Map<Long, Integer> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(productId);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    // --- BÚSQUEDA ---
+
+    /**
+     * Devuelve los IDs de todos los productos que contienen todos los términos de la consulta
+     * (el último término también por prefijo), ordenados de mayor a menor relevancia.
+     */
+    public List<Long> search(String query) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Integer> scores = null;
+        lock.readLock().lock();
+        try {
+            for (String queryTerm : queryTerms) {
+                Map<Long, Integer> termScores = new HashMap<>();
+                // Todos los términos indexados que empiezan con el término buscado
+                for (Map.Entry<String, Map<Long, Integer>> entry
+                        : postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false).entrySet()) {
+                    int factor = entry.getKey().equals(queryTerm) ? EXACT_MATCH_FACTOR : 1;
+                    entry.getValue().forEach((productId, weight) ->
+                            termScores.merge(productId, weight * factor, Math::max));
+                }
+
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // Intersección: el producto debe coincidir con todos los términos
+                    Map<Long, Integer> termScoresFinal = termScores;
+                    scores.keySet().retainAll(termScoresFinal.keySet());
+                    scores.replaceAll((productId, score) -> score + termScoresFinal.get(productId));
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    public int documentCount() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- ANÁLISIS DE TEXTO ---
+
+    private Map<String, Integer> analyze(ProductSearchDocument document) {
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(terms, document.description(), DESCRIPTION_WEIGHT);
+        addTerms(terms, document.name(), NAME_WEIGHT);
+        addTerms(terms, document.sku(), SKU_WEIGHT);
+        if (document.sku() != null && !document.sku().isBlank()) {
+            // El SKU completo (sin separadores) también se indexa para que "abc123" encuentre "ABC-123"
+            terms.merge(SEPARATORS.matcher(normalize(document.sku())).replaceAll(""), SKU_WEIGHT, Math::max);
+        }
+        return terms;
+    }
+
+    private void addTerms(Map<String, Integer> terms, String text, int weight) {
+        for (String term : tokenize(text)) {
+            terms.merge(term, weight, Math::max);
+        }
+    }
+
+    private static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(SEPARATORS.split(normalize(text)))
+                .filter(token -> !token.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    // Minúsculas y sin acentos: "Cámara" y "camara" producen el mismo término.
+    private static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,29 +1,48 @@
 package com.app.shopin.modules.product.service;
 
 import com.app.shopin.modules.exception.CustomException;
+import com.app.shopin.modules.inventory.service.InventoryService;
+import com.app.shopin.modules.pricing.service.PricingService;
 import com.app.shopin.modules.product.dto.*;
 import com.app.shopin.modules.product.entity.Category;
+import com.app.shopin.modules.product.entity.MediaVariants;
 import com.app.shopin.modules.product.entity.Product;
 import com.app.shopin.modules.product.entity.ProductMedia;
+import com.app.shopin.modules.product.enums.MediaStatus;
 import com.app.shopin.modules.product.repository.CategoryRepository;
 import com.app.shopin.modules.product.repository.ProductMediaRepository;
 import com.app.shopin.modules.product.repository.ProductRepository;
-import com.app.shopin.services.cloudinary.ImageType;
+import com.app.shopin.modules.product.repository.ProductSpecifications;
+import com.app.shopin.services.cloudinary.ImageVariant;
 import com.app.shopin.services.cloudinary.StorageService;
+import com.app.shopin.util.ResourceVersion;
+import jakarta.annotation.PostConstruct;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -38,9 +57,38 @@ public class ProductService {
     private StorageService storageService;
     @Autowired
     private ProductMediaRepository productMediaRepository;
+    @Autowired
+    private ProductMediaUploader productMediaUploader;
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+    @Autowired
+    private PricingService pricingService;
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+    @Autowired
+    private ProductDetailCache productDetailCache;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private InventoryService inventoryService;
+
+    // Carga del detalle para la caché: transacción de solo lectura, como la de @Transactional(readOnly = true)
+    private TransactionTemplate readOnlyTransaction;
+
+    public static final int MAX_PAGE_SIZE = 50;
+    // IDs por sentencia al filtrar en SQL los resultados del índice de búsqueda
+    private static final int SEARCH_ID_CHUNK_SIZE = 1000;
+    // Resultados de texto que se pueden reordenar en SQL con una sola lista de IDs
+    private static final int MAX_SORTED_SEARCH_RESULTS = 5000;
 
     public record UpdateDiscountDTO(@Min(0) @Max(100) Integer discountPercent) {}
 
+    @PostConstruct
+    void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
     @Transactional
     public ProductDTO createProduct(ProductDTO productDTO, List<MultipartFile> images, MultipartFile video) {
         if (productRepository.existsBySku(productDTO.sku())) {
@@ -49,12 +97,15 @@ public class ProductService {
         Category category = categoryRepository.findById(productDTO.categoryId())
                 .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Categoría no encontrada."));
 
+        validateMediaFiles(images);
         Product product = new Product();
         mapDtoToEntity(productDTO, product, category);
+        pricingService.applyEffectivePrice(product);
 
-        processMediaFiles(product, images, video);
-
+        // Primero el producto, para que la multimedia pendiente pueda referenciarlo
         Product savedProduct = productRepository.save(product);
+        processMediaFiles(savedProduct, images, video);
+        productSearchIndex.index(savedProduct);
         return mapEntityToDto(savedProduct);
     }
 
@@ -69,14 +120,19 @@ public class ProductService {
         mapDtoToEntity(productDTO, product, category);
 
         if ((images != null && !images.getFirst().isEmpty()) || (video != null && !video.isEmpty())) {
+            validateMediaFiles(images);
             for (ProductMedia media : product.getMedia()) {
-                storageService.deleteFile(media.getPublicId(), media.getMediaType().toLowerCase());
+                productMediaUploader.releaseStorage(media);
             }
             product.getMedia().clear();
             processMediaFiles(product, images, video);
+            product.setUpdatedAt(LocalDateTime.now());
         }
 
+        pricingService.applyEffectivePrice(product);
         Product updatedProduct = productRepository.save(product);
+        productDetailCache.evict(productId);
+        productSearchIndex.index(updatedProduct);
         return mapEntityToDto(updatedProduct);
     }
 
@@ -86,23 +142,41 @@ public class ProductService {
                 .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Producto no encontrado."));
 
         // La lógica de negocio se queda aquí
-        if (storageService.isVideoFile(file)) {
-            if (product.getMedia().stream().anyMatch(m -> "VIDEO".equals(m.getMediaType()))) {
-                throw new CustomException(HttpStatus.BAD_REQUEST, "Este producto ya tiene un video.");
-            }
-        } else {
-            if (product.getMedia().stream().filter(m -> "IMAGE".equals(m.getMediaType())).count() >= 5) {
-                throw new CustomException(HttpStatus.BAD_REQUEST, "Este producto ya tiene el máximo de 5 imágenes.");
-            }
-        }
+        checkMediaLimits(product, storageService.isVideoFile(file));
 
-        // Llamamos al nuevo helper para hacer el trabajo pesado
-        createAndSaveMedia(product, file);
+        // La subida se hace en segundo plano tras el commit; la respuesta la devuelve como PENDING
+        productMediaUploader.stage(product, file);
+        // Los cambios en la multimedia no ensucian la entidad: se marca a mano para invalidar su ETag
+        product.setUpdatedAt(LocalDateTime.now());
         Product updatedProduct = productRepository.save(product);
+        productDetailCache.evict(productId);
 
         return mapEntityToDto(updatedProduct);
     }
 
+    // --- SUBIDAS REANUDABLES ---
+
+    // Se comprueba al abrir la sesión para no recibir un archivo grande que luego se rechazaría
+    @Transactional(readOnly = true)
+    public void checkMediaLimits(Long productId, boolean isVideo) {
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Producto no encontrado."));
+        checkMediaLimits(product, isVideo);
+    }
+
+    @Transactional
+    public ProductMediaDTO completeMediaUpload(Long productId, Path file, boolean isVideo) {
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Producto no encontrado."));
+        checkMediaLimits(product, isVideo);
+
+        ProductMedia media = productMediaUploader.stage(product, file, isVideo);
+        product.setUpdatedAt(LocalDateTime.now());
+        productRepository.save(product);
+        productDetailCache.evict(productId);
+        return mapMediaToDto(media, null);
+    }
+
     @Transactional
     public void deleteMediaFromProduct(Long productId, Long mediaId) {
         ProductMedia media = productMediaRepository.findById(mediaId)
@@ -113,15 +187,17 @@ public class ProductService {
         }
 
         if ("IMAGE".equals(media.getMediaType())) {
-            if (media.getProduct().getMedia().stream().filter(m -> "IMAGE".equals(m.getMediaType())).count() <= 1) {
+            if (countActiveMedia(media.getProduct(), "IMAGE") <= 1) {
                 throw new CustomException(HttpStatus.BAD_REQUEST, "No se puede eliminar la última imagen de un producto.");
             }
         }
 
-        storageService.deleteFile(media.getPublicId(), media.getMediaType().toLowerCase());
+        productMediaUploader.releaseStorage(media);
         Product product = media.getProduct();
         product.getMedia().remove(media);
+        product.setUpdatedAt(LocalDateTime.now());
         productRepository.save(product);
+        productDetailCache.evict(productId);
     }
 
     @Transactional
@@ -130,8 +206,10 @@ public class ProductService {
                 .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Producto no encontrado."));
 
         product.setDiscountPercent(discountDTO.discountPercent());
+        pricingService.applyEffectivePrice(product);
 
         productRepository.save(product);
+        productDetailCache.evict(productId);
         return mapEntityToDto(product);
     }
 
@@ -142,34 +220,24 @@ public class ProductService {
 
         // Simplemente ponemos el porcentaje en null (o 0).
         product.setDiscountPercent(null);
+        pricingService.applyEffectivePrice(product);
 
         productRepository.save(product);
+        productDetailCache.evict(productId);
         return mapEntityToDto(product);
     }
 
     @Transactional
     public ProductDTO updateStock(Long productId, UpdateStockDTO stockDTO) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Producto no encontrado."));
-
-        product.setStockQuantity(stockDTO.newStock());
-        productRepository.save(product);
-        return mapEntityToDto(product);
+        inventoryService.setStock(productId, stockDTO.newStock());
+        return getFreshProduct(productId);
     }
 
     @Transactional
     public ProductDTO restockProduct(Long productId, RestockDTO restockDTO) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Producto no encontrado."));
-
-        int currentStock = product.getStockQuantity();
-        int quantityToAdd = restockDTO.quantityToAdd();
-
-        product.setStockQuantity(currentStock + quantityToAdd);
-        product.setLastRefilledAt(LocalDateTime.now());
-
-        productRepository.save(product);
-        return mapEntityToDto(product);
+        // Incremento atómico en la base de datos: dos reposiciones concurrentes se suman, no se pisan
+        inventoryService.restock(productId, restockDTO.quantityToAdd());
+        return getFreshProduct(productId);
     }
 
     @Transactional
@@ -178,7 +246,9 @@ public class ProductService {
                 .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Producto no encontrado."));
 
         product.setPrice(priceDTO.newPrice());
+        pricingService.applyEffectivePrice(product);
         productRepository.save(product);
+        productDetailCache.evict(productId);
         return mapEntityToDto(product);
     }
 
@@ -188,6 +258,8 @@ public class ProductService {
             throw new CustomException(HttpStatus.NOT_FOUND, "Producto no encontrado.");
         }
         productRepository.deleteById(productId);
+        productDetailCache.evict(productId);
+        productSearchIndex.remove(productId);
     }
 
     // SUPER-ADMIN/DEVELOPER SECTION
@@ -201,75 +273,204 @@ public class ProductService {
         }
 
         product.setDeletedAt(null);
+        pricingService.applyEffectivePrice(product);
         Product savedProduct = productRepository.save(product);
+        productDetailCache.evict(productId);
+        productSearchIndex.index(savedProduct);
         return mapEntityToDto(savedProduct);
     }
 
     @Transactional(readOnly = true)
     public Page<ProductDTO> getAllProductsIncludingDeleted(Pageable pageable) {
-        return productRepository.findAllWithDeleted(pageable).map(this::mapEntityToDto);
+        return mapPage(productRepository.findAllWithDeleted(pageable));
+    }
+
+    @Transactional(readOnly = true)
+    public ProductSliceDTO getAllProductsIncludingDeletedAfter(String after, int size) {
+        int limit = capSize(size);
+        long lastId = after != null ? ProductCursor.decode(after).lastId() : 0L;
+
+        // Pedimos un registro extra para saber si existe una página siguiente
+        List<Product> products = productRepository.findAllWithDeletedAfterId(lastId, limit + 1);
+        boolean hasNext = products.size() > limit;
+        List<Product> pageContent = hasNext ? products.subList(0, limit) : products;
+
+        String nextCursor = hasNext
+                ? new ProductCursor(ProductSortKey.ID, pageContent.getLast().getId(), null).encode()
+                : null;
+        return new ProductSliceDTO(mapAllToDto(pageContent), limit, hasNext, nextCursor);
     }
 
     // SEARCHING SECTION
     @Transactional(readOnly = true)
     public Page<ProductDTO> getAllProducts(Pageable pageable) {
-        return productRepository.findAll(pageable).map(this::mapEntityToDto);
+        return mapPage(productRepository.findAll(capPageSize(pageable)));
     }
 
+    /**
+     * Paginación por cursor: el costo de cada página es constante sin importar qué tan profundo
+     * esté el cliente, porque se busca a partir de la última clave entregada en vez de usar OFFSET.
+     */
     @Transactional(readOnly = true)
+    public ProductSliceDTO getProductsAfter(String after, ProductSortKey sortKey, int size) {
+        ProductCursor cursor = after != null ? ProductCursor.decode(after) : null;
+        ProductSortKey sort = cursor != null ? cursor.sortKey() : (sortKey != null ? sortKey : ProductSortKey.ID);
+        if (cursor != null && sortKey != null && sortKey != cursor.sortKey()) {
+            throw new CustomException(HttpStatus.BAD_REQUEST, "El cursor no corresponde al orden solicitado.");
+        }
+        Pageable page = PageRequest.of(0, capSize(size));
+
+        Slice<Product> slice;
+        if (cursor == null) {
+            slice = switch (sort) {
+                case PRICE_ASC -> productRepository.findSliceByPriceAsc(page);
+                case PRICE_DESC -> productRepository.findSliceByPriceDesc(page);
+                case ID, NEWEST, NAME -> productRepository.findSliceBy(PageRequest.of(0, page.getPageSize(), sortFor(sort)));
+            };
+        } else {
+            slice = switch (sort) {
+                case ID -> productRepository.findSliceAfterId(cursor.lastId(), page);
+                case NEWEST -> productRepository.findSliceBeforeId(cursor.lastId(), page);
+                case PRICE_ASC -> productRepository.findSliceAfterPriceAsc(new BigDecimal(cursor.lastValue()), cursor.lastId(), page);
+                case PRICE_DESC -> productRepository.findSliceAfterPriceDesc(new BigDecimal(cursor.lastValue()), cursor.lastId(), page);
+                case NAME -> productRepository.findSliceAfterName(cursor.lastValue(), cursor.lastId(), page);
+            };
+        }
+
+        String nextCursor = null;
+        if (slice.hasNext()) {
+            Product last = slice.getContent().getLast();
+            nextCursor = new ProductCursor(sort, last.getId(), sortValue(sort, last)).encode();
+        }
+        return new ProductSliceDTO(mapAllToDto(slice.getContent()), page.getPageSize(), slice.hasNext(), nextCursor);
+    }
+
+    // Los órdenes por precio usan COALESCE y tienen sus propias consultas (findSliceByPriceAsc/Desc)
+    private Sort sortFor(ProductSortKey sortKey) {
+        return switch (sortKey) {
+            case ID -> Sort.by(Sort.Order.asc("id"));
+            case NEWEST -> Sort.by(Sort.Order.desc("id"));
+            case NAME -> Sort.by(Sort.Order.asc("name"), Sort.Order.asc("id"));
+            case PRICE_ASC, PRICE_DESC -> throw new IllegalArgumentException("Orden por precio sin Sort: " + sortKey);
+        };
+    }
+
+    private String sortValue(ProductSortKey sortKey, Product product) {
+        return switch (sortKey) {
+            case ID, NEWEST -> null;
+            // Misma clave que ordena la consulta, COALESCE(effective_price, price): si no coincide, el cursor salta
+            // o repite filas. PricingService.effectivePrice no sirve aquí porque aplica promociones que SQL no ve.
+            case PRICE_ASC, PRICE_DESC -> (product.getEffectivePrice() != null
+                    ? product.getEffectivePrice()
+                    : product.getPrice()).toPlainString();
+            case NAME -> product.getName();
+        };
+    }
+
     public ProductDTO getProductById(Long productId) {
-        return productRepository.findById(productId)
-                .map(this::mapEntityToDto)
-                .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Producto no encontrado"));
+        // Lectura a través de la caché: los aciertos no abren transacción y un fallo concurrente
+        // sobre el mismo ID produce una sola carga
+        return productDetailCache.get(productId, id -> readOnlyTransaction.execute(status ->
+                productRepository.findDetailedById(id)
+                        .map(this::mapEntityToDto)
+                        .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Producto no encontrado"))));
     }
 
+    // CONDITIONAL REQUESTS SECTION
     @Transactional(readOnly = true)
-    public List<ProductDTO> searchProductsByName(String name) {
-        return productRepository.findByNameContainingIgnoreCase(name).stream()
-                .map(this::mapEntityToDto)
-                .collect(Collectors.toList());
+    public ResourceVersion getProductVersion(Long productId) {
+        ProductVersion version = productRepository.findVersionById(productId)
+                .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Producto no encontrado"));
+        return ResourceVersion.of(version.lastModified(), "product", version.id(), version.lastModified());
     }
 
+    // Cualquier listado del catálogo cambia solo si cambia algún producto (alta, baja o modificación).
+    // Sin Last-Modified: una baja no mueve la fecha máxima, solo el ETag la detecta.
     @Transactional(readOnly = true)
-    public List<ProductDTO> getProductsByCategory(Long categoryId) {
-        return productRepository.findByCategoryId(categoryId).stream()
-                .map(this::mapEntityToDto)
-                .collect(Collectors.toList());
+    public ResourceVersion getCatalogVersion() {
+        CatalogVersion version = productRepository.findCatalogVersion();
+        return ResourceVersion.of(null, "catalog", version.productCount(), version.lastModified());
     }
 
     @Transactional(readOnly = true)
-    public List<ProductDTO> getProductsByCategoryAndSubcategories(Long categoryId) {
-        // Este método ahora buscará en la categoría principal Y en sus hijas directas.
-        return productRepository.findByCategoryIdWithSubcategories(categoryId).stream()
+    public Page<ProductDTO> searchProducts(ProductSearchCriteria criteria, Pageable pageable) {
+        Pageable page = capPageSize(pageable);
+        Specification<Product> specification = ProductSpecifications.fromCriteria(criteria, resolveCategoryIds(criteria));
+
+        if (!criteria.hasName()) {
+            // Sin texto, todos los filtros se combinan en una sola consulta paginada.
+            return mapPage(productRepository.findAll(specification, page));
+        }
+
+        // Con texto, el índice en memoria resuelve todos los candidatos ordenados por relevancia.
+        List<Long> rankedIds = productSearchIndex.search(criteria.name());
+        if (rankedIds.isEmpty()) {
+            return Page.empty(page);
+        }
+
+        // Los demás filtros se aplican en SQL por bloques de IDs (solo IDs): el total de la página es exacto
+        Set<Long> matchingIds = new HashSet<>();
+        for (int from = 0; from < rankedIds.size(); from += SEARCH_ID_CHUNK_SIZE) {
+            List<Long> chunk = rankedIds.subList(from, Math.min(from + SEARCH_ID_CHUNK_SIZE, rankedIds.size()));
+            matchingIds.addAll(productRepository.findIds(specification.and(ProductSpecifications.idIn(chunk))));
+        }
+        List<Long> orderedIds = rankedIds.stream().filter(matchingIds::contains).toList();
+        if (orderedIds.isEmpty()) {
+            return Page.empty(page);
+        }
+
+        if (page.getSort().isSorted()) {
+            // Si el cliente pide un orden explícito, el orden lo resuelve SQL sobre los IDs que coinciden
+            if (orderedIds.size() > MAX_SORTED_SEARCH_RESULTS) {
+                throw new CustomException(HttpStatus.BAD_REQUEST, "La búsqueda tiene " + orderedIds.size()
+                        + " resultados: para ordenarlos por otro criterio que no sea la relevancia debe afinarla"
+                        + " (máximo " + MAX_SORTED_SEARCH_RESULTS + ").");
+            }
+            return mapPage(productRepository.findAll(ProductSpecifications.idIn(orderedIds), page));
+        }
+
+        // Orden por relevancia: se hidrata únicamente la página pedida.
+        int from = (int) Math.min(page.getOffset(), orderedIds.size());
+        int to = Math.min(from + page.getPageSize(), orderedIds.size());
+        List<Long> pageIds = orderedIds.subList(from, to);
+
+        Map<Long, Product> productsById = productRepository.findAllWithDetailsByIdIn(pageIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<ProductDTO> content = pageIds.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
                 .map(this::mapEntityToDto)
-                .collect(Collectors.toList());
+                .toList();
+        return new PageImpl<>(content, page, orderedIds.size());
     }
 
-    @Transactional(readOnly = true)
-    public List<ProductDTO> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
-        return productRepository.findByPriceBetween(minPrice, maxPrice).stream()
-                .map(this::mapEntityToDto)
-                .collect(Collectors.toList());
+    // Categoría principal y, si se piden, todas sus descendientes, resueltas con el árbol en memoria
+    private Set<Long> resolveCategoryIds(ProductSearchCriteria criteria) {
+        if (criteria.categoryId() == null) {
+            return null;
+        }
+        return criteria.includeSubcategories()
+                ? categoryTreeCache.get().subtreeIds(criteria.categoryId())
+                : Set.of(criteria.categoryId());
     }
 
-    @Transactional(readOnly = true)
-    public List<ProductDTO> getProductsOnSale() {
-        // Ahora busca por productos que tengan un descuento mayor a 0.
-        return productRepository.findByDiscountPercentGreaterThan(0).stream()
-                .map(this::mapEntityToDto)
-                .collect(Collectors.toList());
+    private int capSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
     }
 
-    @Transactional(readOnly = true)
-    public List<ProductDTO> getProductsByMinimumDiscount(Integer minDiscount) {
-        // Busca productos con un descuento igual o mayor al que pide el usuario.
-        return productRepository.findByDiscountPercentGreaterThanEqual(minDiscount).stream()
-                .map(this::mapEntityToDto)
-                .collect(Collectors.toList());
+    // Limita el tamaño de página para que ninguna búsqueda cargue catálogos completos en memoria.
+    private Pageable capPageSize(Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return PageRequest.of(0, MAX_PAGE_SIZE);
+        }
+        if (pageable.getPageSize() > MAX_PAGE_SIZE) {
+            return PageRequest.of(pageable.getPageNumber(), MAX_PAGE_SIZE, pageable.getSort());
+        }
+        return pageable;
     }
 
     // MEDIA FILES UPLOAD METHOD
-    private void processMediaFiles(Product product, List<MultipartFile> images, MultipartFile video) {
+    private void validateMediaFiles(List<MultipartFile> images) {
         // Validar reglas de negocio
         if (images == null || images.isEmpty() || images.getFirst().isEmpty()) {
             throw new CustomException(HttpStatus.BAD_REQUEST, "Se requiere al menos una imagen para el producto.");
@@ -277,43 +478,82 @@ public class ProductService {
         if (images.size() > 5) {
             throw new CustomException(HttpStatus.BAD_REQUEST, "No se pueden subir más de 5 imágenes.");
         }
+    }
 
+    // Los archivos quedan registrados como PENDING y se suben en paralelo después del commit
+    private void processMediaFiles(Product product, List<MultipartFile> images, MultipartFile video) {
         for (MultipartFile imageFile : images) {
             if (imageFile != null && !imageFile.isEmpty()) {
-                createAndSaveMedia(product, imageFile);
+                productMediaUploader.stage(product, imageFile);
             }
         }
 
         if (video != null && !video.isEmpty()) {
-            createAndSaveMedia(product, video);
+            productMediaUploader.stage(product, video);
         }
     }
 
-    private void createAndSaveMedia(Product product, MultipartFile file) {
-        boolean isVideo = storageService.isVideoFile(file);
-        Map<String, String> fileData;
-        String mediaType;
-
+    // Las subidas fallidas no cuentan para los límites
+    private void checkMediaLimits(Product product, boolean isVideo) {
         if (isVideo) {
-            fileData = storageService.uploadVideo(file, "products");
-            mediaType = "VIDEO";
+            if (countActiveMedia(product, "VIDEO") > 0) {
+                throw new CustomException(HttpStatus.BAD_REQUEST, "Este producto ya tiene un video.");
+            }
         } else {
-            fileData = storageService.uploadImage(file, "products", ImageType.PRODUCT);
-            mediaType = "IMAGE";
+            if (countActiveMedia(product, "IMAGE") >= 5) {
+                throw new CustomException(HttpStatus.BAD_REQUEST, "Este producto ya tiene el máximo de 5 imágenes.");
+            }
         }
+    }
 
-        ProductMedia media = new ProductMedia();
-        media.setProduct(product);
-        media.setMediaType(mediaType);
-        media.setUrl(fileData.get("url"));
-        media.setPublicId(fileData.get("publicId"));
+    private long countActiveMedia(Product product, String mediaType) {
+        return product.getMedia().stream()
+                .filter(m -> mediaType.equals(m.getMediaType()) && m.getStatus() != MediaStatus.FAILED)
+                .count();
+    }
 
-        product.getMedia().add(media);
+    // Tras un UPDATE en bloque la entidad se lee después del cambio, nunca antes
+    private ProductDTO getFreshProduct(Long productId) {
+        return productRepository.findDetailedById(productId)
+                .map(this::mapEntityToDto)
+                .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Producto no encontrado."));
+    }
+
+    private ProductMediaDTO mapMediaToDto(ProductMedia media, ImageVariant urlVariant) {
+        MediaVariants variants = media.getVariants();
+        MediaVariantsDTO variantsDTO = variants == null ? null : new MediaVariantsDTO(
+                variants.getUrl(ImageVariant.THUMB), variants.getUrl(ImageVariant.CARD),
+                variants.getUrl(ImageVariant.DETAIL), variants.getWebpUrl(ImageVariant.THUMB),
+                variants.getWebpUrl(ImageVariant.CARD), variants.getWebpUrl(ImageVariant.DETAIL));
+        String url = urlVariant != null ? media.getUrl(urlVariant) : media.getUrl();
+        return new ProductMediaDTO(media.getId(), url, media.getMediaType(), media.getStatus(), variantsDTO);
+    }
+
+    // --- PLAN DE CARGA PARA LECTURAS ---
+    // Una página se mapea con un número fijo de consultas: la de la página (más su COUNT si es Page)
+    // y una sola consulta que trae la multimedia de todos los productos de la página.
+
+    private Page<ProductDTO> mapPage(Page<Product> page) {
+        return new PageImpl<>(mapAllToDto(page.getContent()), page.getPageable(), page.getTotalElements());
+    }
+
+    private List<ProductDTO> mapAllToDto(List<Product> products) {
+        if (products.isEmpty()) {
+            return List.of();
+        }
+        // Las entidades ya están en el contexto de persistencia: esta consulta inicializa sus colecciones
+        productRepository.findAllWithDetailsByIdIn(products.stream().map(Product::getId).toList());
+        // En listados la URL principal es el tamaño de tarjeta; el original sigue en el detalle
+        return products.stream().map(product -> mapEntityToDto(product, ImageVariant.CARD)).toList();
     }
 
     private ProductDTO mapEntityToDto(Product product) {
+        return mapEntityToDto(product, null);
+    }
+
+    private ProductDTO mapEntityToDto(Product product, ImageVariant listVariant) {
         List<ProductMediaDTO> mediaDTOs = product.getMedia().stream()
-                .map(media -> new ProductMediaDTO(media.getId(), media.getUrl(), media.getMediaType()))
+                .map(media -> mapMediaToDto(media, listVariant))
                 .collect(Collectors.toList());
 
         return new ProductDTO(
@@ -324,7 +564,7 @@ public class ProductService {
                 product.getDescription(),
                 product.getPrice(),
                 product.getDiscountPercent(),
-                product.getEffectivePrice(),
+                pricingService.effectivePrice(product),
                 product.getStockQuantity(),
                 product.getCategory().getId()
         );
@@ -9,10 +9,12 @@ import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -24,9 +26,15 @@ public class PromotionController {
     @Autowired
     private PromotionService promotionService;
 
+    // Los clientes y la CDN pueden guardar la respuesta, pero deben revalidarla (ETag) antes de reutilizarla
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePublic();
+
     @GetMapping("/active")
-    public ResponseEntity<List<PromotionDTO>> getActivePromotions() {
-        return ResponseEntity.ok(promotionService.getActivePromotions());
+    public ResponseEntity<List<PromotionDTO>> getActivePromotions(WebRequest request) {
+        if (request.checkNotModified(promotionService.getActivePromotionsVersion().etag())) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(promotionService.getActivePromotions());
     }
 
     @GetMapping
@@ -0,0 +1,6 @@
+package com.app.shopin.modules.promotion.dto;
+
+import java.time.LocalDateTime;
+
+// Una promoción habilitada asociada a un producto o a una categoría (targetId), con su ventana de vigencia
+public record PromotionTarget(Long targetId, Integer discountPercent, LocalDateTime startDate, LocalDateTime endDate) {}
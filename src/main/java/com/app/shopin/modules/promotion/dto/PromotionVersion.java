@@ -0,0 +1,5 @@
+package com.app.shopin.modules.promotion.dto;
+
+import java.time.LocalDateTime;
+
+public record PromotionVersion(Long id, LocalDateTime lastModified) {}
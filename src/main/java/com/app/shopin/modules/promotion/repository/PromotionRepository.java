@@ -1,5 +1,7 @@
 package com.app.shopin.modules.promotion.repository;
 
+import com.app.shopin.modules.promotion.dto.PromotionTarget;
+import com.app.shopin.modules.promotion.dto.PromotionVersion;
 import com.app.shopin.modules.promotion.entity.Promotion;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -16,9 +18,52 @@ public interface PromotionRepository extends JpaRepository<Promotion, Long> {
     @Query("SELECT p FROM Promotion p WHERE p.isActive = true AND (p.startDate IS NULL OR p.startDate <= :now) AND (p.endDate IS NULL OR p.endDate >= :now)")
     List<Promotion> findAllActivePromotions(@Param("now") LocalDateTime now);
 
+    @Query("SELECT new com.app.shopin.modules.promotion.dto.PromotionVersion(p.id, COALESCE(p.updatedAt, p.createdAt)) FROM Promotion p WHERE p.isActive = true AND (p.startDate IS NULL OR p.startDate <= :now) AND (p.endDate IS NULL OR p.endDate >= :now) ORDER BY p.id")
+    List<PromotionVersion> findActivePromotionVersions(@Param("now") LocalDateTime now);
+
     @Query(value = "SELECT * FROM promotions", nativeQuery = true)
     Page<Promotion> findAllWithDeleted(Pageable pageable);
 
     @Query(value = "SELECT * FROM promotions WHERE id = ?1", nativeQuery = true)
     Optional<Promotion> findWithDeletedById(Long id);
+
+    // PRICING SECTION
+    @Query(value = "SELECT product_id FROM promotions_products WHERE promotion_id = :promotionId", nativeQuery = true)
+    List<Long> findProductIdsByPromotionId(@Param("promotionId") Long promotionId);
+
+    @Query(value = "SELECT category_id FROM promotions_categories WHERE promotion_id = :promotionId", nativeQuery = true)
+    List<Long> findCategoryIdsByPromotionId(@Param("promotionId") Long promotionId);
+
+    // Promociones habilitadas que no han terminado (también las que aún no empiezan), para el índice de precios
+    @Query("SELECT new com.app.shopin.modules.promotion.dto.PromotionTarget(prod.id, p.discountPercent, p.startDate, p.endDate) FROM Promotion p JOIN p.products prod WHERE p.isActive = true AND (p.endDate IS NULL OR p.endDate >= :now)")
+    List<PromotionTarget> findProductTargets(@Param("now") LocalDateTime now);
+
+    @Query("SELECT new com.app.shopin.modules.promotion.dto.PromotionTarget(c.id, p.discountPercent, p.startDate, p.endDate) FROM Promotion p JOIN p.categories c WHERE p.isActive = true AND (p.endDate IS NULL OR p.endDate >= :now)")
+    List<PromotionTarget> findCategoryTargets(@Param("now") LocalDateTime now);
+
+    // Promociones habilitadas con un inicio o un fin todavía por llegar, para programar sus cambios de vigencia
+    @Query("SELECT p FROM Promotion p WHERE p.isActive = true AND (p.startDate > :now OR p.endDate >= :now)")
+    List<Promotion> findWithUpcomingBoundary(@Param("now") LocalDateTime now);
+
+    // Productos de promociones que empezaron o terminaron dentro de la ventana (from, to]
+    @Query(value = """
+            SELECT DISTINCT pp.product_id
+            FROM promotions_products pp
+            JOIN promotions pr ON pr.id = pp.promotion_id
+            WHERE pr.deleted_at IS NULL
+              AND ((pr.start_date > :from AND pr.start_date <= :to)
+                   OR (pr.end_date >= :from AND pr.end_date < :to))
+            """, nativeQuery = true)
+    List<Long> findProductIdsWithBoundaryBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Categorías de promociones que empezaron o terminaron dentro de la ventana (from, to]
+    @Query(value = """
+            SELECT DISTINCT pc.category_id
+            FROM promotions_categories pc
+            JOIN promotions pr ON pr.id = pc.promotion_id
+            WHERE pr.deleted_at IS NULL
+              AND ((pr.start_date > :from AND pr.start_date <= :to)
+                   OR (pr.end_date >= :from AND pr.end_date < :to))
+            """, nativeQuery = true)
+    List<Long> findCategoryIdsWithBoundaryBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 }
@@ -1,14 +1,20 @@
 package com.app.shopin.modules.promotion.service;
 
 import com.app.shopin.modules.exception.CustomException;
+import com.app.shopin.modules.pricing.service.PricingService;
+import com.app.shopin.modules.pricing.service.PromotionIndexService;
+import com.app.shopin.modules.pricing.service.PromotionTransitionScheduler;
 import com.app.shopin.modules.product.entity.Category;
 import com.app.shopin.modules.product.entity.Product;
 import com.app.shopin.modules.product.repository.CategoryRepository;
 import com.app.shopin.modules.product.repository.ProductRepository;
+import com.app.shopin.modules.product.service.CategoryTreeCache;
 import com.app.shopin.modules.promotion.dto.PromotionDTO;
+import com.app.shopin.modules.promotion.dto.PromotionVersion;
 import com.app.shopin.modules.promotion.dto.UpdatePromotionStatusDTO;
 import com.app.shopin.modules.promotion.entity.Promotion;
 import com.app.shopin.modules.promotion.repository.PromotionRepository;
+import com.app.shopin.util.ResourceVersion;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -17,6 +23,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -31,6 +38,14 @@ public class PromotionService {
     private ProductRepository productRepository;
     @Autowired
     private CategoryRepository categoryRepository;
+    @Autowired
+    private PricingService pricingService;
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+    @Autowired
+    private PromotionIndexService promotionIndexService;
+    @Autowired
+    private PromotionTransitionScheduler transitionScheduler;
 
     @Transactional
     public PromotionDTO createPromotion(PromotionDTO promotionDTO) {
@@ -38,6 +53,8 @@ public class PromotionService {
         mapDtoToEntity(promotionDTO, promotion);
 
         Promotion savedPromotion = promotionRepository.save(promotion);
+        reprice(productIdsOf(savedPromotion));
+        transitionScheduler.registerAfterCommit(savedPromotion);
         return mapEntityToDto(savedPromotion);
     }
 
@@ -46,8 +63,15 @@ public class PromotionService {
         Promotion existingPromotion = promotionRepository.findById(promotionId)
                 .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Promoción no encontrada."));
 
+        // Productos que salen de la promoción también necesitan recalcular su precio
+        Set<Long> affectedProductIds = productIdsOf(existingPromotion);
         mapDtoToEntity(promotionDTO, existingPromotion);
+        existingPromotion.setUpdatedAt(LocalDateTime.now());
         Promotion updatedPromotion = promotionRepository.save(existingPromotion);
+        affectedProductIds.addAll(productIdsOf(updatedPromotion));
+        reprice(affectedProductIds);
+        // Las fechas pueden haber cambiado: se cancelan los vencimientos anteriores y se programan los nuevos
+        transitionScheduler.registerAfterCommit(updatedPromotion);
         return mapEntityToDto(updatedPromotion);
     }
 
@@ -58,6 +82,8 @@ public class PromotionService {
 
         promotion.setActive(dto.isActive());
         promotionRepository.save(promotion);
+        reprice(productIdsOf(promotion));
+        transitionScheduler.registerAfterCommit(promotion);
         return mapEntityToDto(promotion);
     }
 
@@ -67,7 +93,10 @@ public class PromotionService {
         Promotion promotion = promotionRepository.findById(promotionId).orElseThrow(/* ... */);
         Product product = productRepository.findById(productId).orElseThrow(/* ... */);
         promotion.getProducts().add(product);
+        // Cambiar solo las asociaciones no dispara @PreUpdate: se marca a mano para invalidar el ETag
+        promotion.setUpdatedAt(LocalDateTime.now());
         promotionRepository.save(promotion);
+        reprice(List.of(productId));
         return mapEntityToDto(promotion);
     }
 
@@ -76,7 +105,9 @@ public class PromotionService {
         Promotion promotion = promotionRepository.findById(promotionId).orElseThrow(/* ... */);
         Product product = productRepository.findById(productId).orElseThrow(/* ... */);
         promotion.getProducts().remove(product);
+        promotion.setUpdatedAt(LocalDateTime.now());
         promotionRepository.save(promotion);
+        reprice(List.of(productId));
         return mapEntityToDto(promotion);
     }
 
@@ -87,12 +118,17 @@ public class PromotionService {
         Category category = categoryRepository.findById(categoryId).orElseThrow(/* ... */);
 
         // TU REGLA DE NEGOCIO: Evitar añadir una subcategoría si el padre ya está.
-        if (isAncestorInCategorySet(category, promotion.getCategories())) {
+        Set<Long> promotionCategoryIds = promotion.getCategories().stream()
+                .map(Category::getId)
+                .collect(Collectors.toSet());
+        if (categoryTreeCache.get().hasAncestorIn(category.getId(), promotionCategoryIds)) {
             throw new CustomException(HttpStatus.BAD_REQUEST, "La categoría padre de esta subcategoría ya está incluida en la promoción.");
         }
 
         promotion.getCategories().add(category);
+        promotion.setUpdatedAt(LocalDateTime.now());
         promotionRepository.save(promotion);
+        reprice(pricingService.productIdsInCategories(List.of(categoryId)));
         return mapEntityToDto(promotion);
     }
 
@@ -101,7 +137,9 @@ public class PromotionService {
         Promotion promotion = promotionRepository.findById(promotionId).orElseThrow(/* ... */);
         Category category = categoryRepository.findById(categoryId).orElseThrow(/* ... */);
         promotion.getCategories().remove(category);
+        promotion.setUpdatedAt(LocalDateTime.now());
         promotionRepository.save(promotion);
+        reprice(pricingService.productIdsInCategories(List.of(categoryId)));
         return mapEntityToDto(promotion);
     }
 
@@ -110,8 +148,11 @@ public class PromotionService {
     public PromotionDTO clearProductsFromPromotion(Long promotionId) {
         Promotion promotion = promotionRepository.findById(promotionId)
                 .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Promoción no encontrada."));
+        Set<Long> affectedProductIds = productIdsOf(promotion);
         promotion.getProducts().clear();
+        promotion.setUpdatedAt(LocalDateTime.now());
         promotionRepository.save(promotion);
+        reprice(affectedProductIds);
         return mapEntityToDto(promotion);
     }
 
@@ -119,8 +160,11 @@ public class PromotionService {
     public PromotionDTO clearCategoriesFromPromotion(Long promotionId) {
         Promotion promotion = promotionRepository.findById(promotionId)
                 .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Promoción no encontrada."));
+        Set<Long> affectedProductIds = pricingService.productIdsInCategories(categoryIdsOf(promotion));
         promotion.getCategories().clear();
+        promotion.setUpdatedAt(LocalDateTime.now());
         promotionRepository.save(promotion);
+        reprice(affectedProductIds);
         return mapEntityToDto(promotion);
     }
 
@@ -130,10 +174,13 @@ public class PromotionService {
         Promotion promotion = promotionRepository.findById(promotionId)
                 .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Promoción no encontrada."));
 
+        Set<Long> affectedProductIds = productIdsOf(promotion);
         promotion.getProducts().clear();
         promotion.getCategories().clear();
 
+        promotion.setUpdatedAt(LocalDateTime.now());
         promotionRepository.save(promotion);
+        reprice(affectedProductIds);
         return mapEntityToDto(promotion);
     }
 
@@ -143,6 +190,9 @@ public class PromotionService {
             throw new CustomException(HttpStatus.NOT_FOUND, "Promoción no encontrada.");
         }
         promotionRepository.deleteById(promotionId);
+        promotionIndexService.invalidate();
+        pricingService.recalculatePromotionProducts(promotionId);
+        transitionScheduler.cancelAfterCommit(promotionId);
     }
 
     @Transactional
@@ -156,10 +206,20 @@ public class PromotionService {
 
         promotion.setDeletedAt(null);
         Promotion reactivatedPromotion = promotionRepository.save(promotion);
+        promotionIndexService.invalidate();
+        pricingService.recalculatePromotionProducts(promotionId);
+        transitionScheduler.registerAfterCommit(reactivatedPromotion);
 
         return mapEntityToDto(reactivatedPromotion);
     }
 
+    // El conjunto de promociones activas cambia con sus ediciones y al cruzar sus fechas de inicio/fin
+    @Transactional(readOnly = true)
+    public ResourceVersion getActivePromotionsVersion() {
+        List<PromotionVersion> versions = promotionRepository.findActivePromotionVersions(LocalDateTime.now());
+        return new ResourceVersion(ResourceVersion.digest("active-promotions", versions), -1);
+    }
+
     @Transactional(readOnly = true)
     public List<PromotionDTO> getActivePromotions() {
         return promotionRepository.findAllActivePromotions(LocalDateTime.now()).stream()
@@ -179,15 +239,25 @@ public class PromotionService {
                 .orElseThrow(() -> new CustomException(HttpStatus.NOT_FOUND, "Promoción no encontrada."));
     }
 
-    private boolean isAncestorInCategorySet(Category category, Set<Category> categorySet) {
-        Category parent = category.getParent();
-        while (parent != null) {
-            if (categorySet.contains(parent)) {
-                return true;
-            }
-            parent = parent.getParent();
-        }
-        return false;
+    // Productos cuyo precio depende de la promoción: los asociados y los de sus categorías (con subcategorías)
+    private Set<Long> productIdsOf(Promotion promotion) {
+        Set<Long> productIds = promotion.getProducts().stream()
+                .map(Product::getId)
+                .collect(Collectors.toCollection(HashSet::new));
+        productIds.addAll(pricingService.productIdsInCategories(categoryIdsOf(promotion)));
+        return productIds;
+    }
+
+    private Set<Long> categoryIdsOf(Promotion promotion) {
+        return promotion.getCategories().stream()
+                .map(Category::getId)
+                .collect(Collectors.toSet());
+    }
+
+    // El recálculo ve los cambios de esta transacción; el índice compartido se publica tras el commit
+    private void reprice(Collection<Long> productIds) {
+        promotionIndexService.invalidate();
+        pricingService.recalculateProducts(productIds);
     }
 
     // --- MÉTODOS DE AYUDA (Mappers) ---
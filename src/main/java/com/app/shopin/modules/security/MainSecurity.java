@@ -73,10 +73,15 @@ public class MainSecurity {
                         .requestMatchers("/api/auth/**", "/oauth2/**").permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/users").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/products/**", "/api/categories/**", "/api/promotions/**").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/pricing/quote").permitAll()
 
                         // 2. CUALQUIER OTRA RUTA bajo /api/ requiere como MÍNIMO estar autenticado
                         .requestMatchers("/api/**").authenticated()
 
+                        // 3. Actuator: solo el estado de salud es público; las métricas, para administradores
+                        .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                        .requestMatchers("/actuator/**").hasAnyRole("ADMIN", "SUPERADMIN")
+
                         .anyRequest().permitAll()
                 )
                 // --- FIN DE LAS REGLAS DE ACCESO ---
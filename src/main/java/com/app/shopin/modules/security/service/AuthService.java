@@ -13,9 +13,9 @@ import com.app.shopin.modules.security.entity.Rol;
 import com.app.shopin.modules.security.entity.SocialLink;
 import com.app.shopin.modules.security.enums.RolName;
 import com.app.shopin.modules.security.enums.TwoFactorMethod;
+import com.app.shopin.modules.user.service.ProfilePictureImporter;
 import com.app.shopin.modules.user.service.UserService;
-import com.app.shopin.services.cloudinary.ImageType;
-import com.app.shopin.services.cloudinary.StorageService;
+import com.app.shopin.services.avatar.AvatarRenderer;
 import com.app.shopin.services.email.EmailService;
 import com.app.shopin.util.UserResponse;
 import org.slf4j.Logger;
@@ -70,7 +70,9 @@ public class AuthService {
     @Autowired
     private UserService userService;
     @Autowired
-    private StorageService storageService;
+    private ProfilePictureImporter profilePictureImporter;
+    @Autowired
+    private AvatarRenderer avatarRenderer;
 
     @Autowired
     private FavoriteService favoriteService;
@@ -253,19 +255,17 @@ public class AuthService {
         roles.add(rolService.getByRolName(RolName.ROLE_USER).orElseThrow());
         newUser.setRoles(roles);
 
-        // 6. Subimos la foto de perfil
-        try {
-            if (tempInfo.pictureUrl() != null && !tempInfo.pictureUrl().isEmpty()) {
-                Map<String, String> fileInfo = storageService.uploadFromUrl(tempInfo.pictureUrl(), "profileimages", ImageType.PROFILE);
-                newUser.setProfilePictureUrl(fileInfo.get("url"));
-                newUser.setProfilePicturePublicId(fileInfo.get("publicId"));
-            }
-        } catch (Exception e) {
-            log.error("Error al subir la imagen de perfil de OAuth2 para el usuario: {}", tempInfo.email(), e);
-        }
+        // 6. Foto de perfil: la del proveedor (se copia al almacenamiento tras el commit) o el avatar de iniciales
+        boolean hasProviderPicture = tempInfo.pictureUrl() != null && !tempInfo.pictureUrl().isEmpty();
+        newUser.setProfilePictureUrl(hasProviderPicture
+                ? tempInfo.pictureUrl()
+                : avatarRenderer.avatarUrl(tempInfo.firstName(), tempInfo.lastName()));
 
         // 7. Guardamos el usuario nuevo y completo
         User savedUser = userRepository.save(newUser);
+        if (hasProviderPicture) {
+            profilePictureImporter.importAfterCommit(savedUser.getId(), tempInfo.pictureUrl());
+        }
 
         favoriteService.createDefaultListsForUser(savedUser);
         cartService.createCartForUser(savedUser);
@@ -37,5 +37,12 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Modifying
     @Query(value = "UPDATE users SET deleted_at = NULL WHERE id = :id", nativeQuery = true)
     void reactivateUserById(@Param("id") Long id);
+
+    // Solo si la foto sigue siendo la esperada: no pisa un cambio hecho mientras se copiaba
+    @Modifying
+    @Query("UPDATE User u SET u.profilePictureUrl = :url, u.profilePicturePublicId = :publicId " +
+            "WHERE u.id = :id AND u.profilePictureUrl = :expectedUrl")
+    int replaceProfilePicture(@Param("id") Long id, @Param("expectedUrl") String expectedUrl,
+                              @Param("url") String url, @Param("publicId") String publicId);
 }
 
@@ -0,0 +1,83 @@
+package com.app.shopin.modules.user.service;
+
+import com.app.shopin.modules.media.service.MediaDeletionQueue;
+import com.app.shopin.modules.user.repository.UserRepository;
+import com.app.shopin.services.cloudinary.ImageType;
+import com.app.shopin.services.cloudinary.StorageService;
+import com.app.shopin.util.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copia al almacenamiento la foto de perfil de un proveedor OAuth2 después de registrar al usuario.
+ * Mientras tanto el usuario ya tiene la URL del proveedor, así que el alta no espera ninguna llamada remota.
+ * Si la copia falla o la cola está llena, simplemente se queda con esa URL.
+ */
+@Component
+public class ProfilePictureImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfilePictureImporter.class);
+
+    @Autowired
+    private StorageService storageService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private MediaDeletionQueue mediaDeletionQueue;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${user.profile-picture.import-threads:2}")
+    private int threads;
+    @Value("${user.profile-picture.import-queue-capacity:100}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "profile-picture-" + threadNumber.incrementAndGet()),
+                (runnable, pool) -> log.warn("Cola de fotos de perfil llena: se conserva la URL del proveedor"));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    // Se llama dentro de la transacción que crea al usuario, con sourceUrl ya guardada como su foto
+    public void importAfterCommit(Long userId, String sourceUrl) {
+        TransactionUtils.afterCommit(() -> executor.execute(() -> importPicture(userId, sourceUrl)));
+    }
+
+    private void importPicture(Long userId, String sourceUrl) {
+        Map<String, String> fileInfo;
+        try {
+            fileInfo = storageService.uploadFromUrl(sourceUrl, "profileimages", ImageType.PROFILE);
+        } catch (RuntimeException e) {
+            log.warn("No se pudo copiar la foto de perfil del usuario {}", userId, e);
+            return;
+        }
+        Integer updated = transactionTemplate.execute(status -> userRepository.replaceProfilePicture(
+                userId, sourceUrl, fileInfo.get("url"), fileInfo.get("publicId")));
+        if (updated == null || updated == 0) {
+            // El usuario cambió su foto mientras tanto: la copia ya no la usa nadie
+            mediaDeletionQueue.enqueue(fileInfo.get("publicId"), "image");
+        }
+    }
+}
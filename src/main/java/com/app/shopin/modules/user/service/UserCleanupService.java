@@ -1,8 +1,8 @@
 package com.app.shopin.modules.user.service;
 
+import com.app.shopin.modules.media.service.MediaDeletionQueue;
 import com.app.shopin.modules.user.entity.User;
 import com.app.shopin.modules.user.repository.UserRepository;
-import com.app.shopin.services.cloudinary.StorageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -18,7 +18,7 @@ public class UserCleanupService {
     private UserRepository userRepository;
 
     @Autowired
-    private StorageService storageService;
+    private MediaDeletionQueue mediaDeletionQueue;
 
     @Scheduled(cron = "0 0 3 * * ?")
     @Transactional
@@ -36,11 +36,8 @@ public class UserCleanupService {
         System.out.println("Se eliminarán " + usersToDelete.size() + " usuarios.");
 
         for (User user : usersToDelete) {
-            try {
-                storageService.deleteFile(user.getProfilePicturePublicId(), "image");
-            } catch (Exception e) {
-                System.err.println("Error al eliminar la imagen del usuario " + user.getId() + " de Cloudinary: " + e.getMessage());
-            }
+            // El borrado remoto lo hace la cola después del commit, con reintentos
+            mediaDeletionQueue.enqueue(user.getProfilePicturePublicId(), "image");
 
             userRepository.hardDeleteById(user.getId());
         }
@@ -3,6 +3,7 @@ package com.app.shopin.modules.user.service;
 import com.app.shopin.modules.cart.service.CartService;
 import com.app.shopin.modules.exception.CustomException;
 import com.app.shopin.modules.favorites.service.FavoriteService;
+import com.app.shopin.modules.media.service.MediaDeletionQueue;
 import com.app.shopin.modules.security.blacklist.TokenBlacklist;
 import com.app.shopin.modules.security.dto.twofactor.CodeConfirmationDTO;
 import com.app.shopin.modules.security.dto.twofactor.PasswordConfirmationDTO;
@@ -21,6 +22,7 @@ import com.app.shopin.modules.user.dto.UpdateUserDataDTO;
 import com.app.shopin.modules.user.dto.UpdateUsernameDTO;
 import com.app.shopin.modules.user.entity.User;
 import com.app.shopin.modules.user.repository.UserRepository;
+import com.app.shopin.services.avatar.AvatarRenderer;
 import com.app.shopin.services.cloudinary.ImageType;
 import com.app.shopin.services.cloudinary.StorageService;
 import com.app.shopin.services.email.EmailService;
@@ -34,8 +36,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -63,6 +63,12 @@ public class UserService {
     @Autowired
     StorageService storageService;
 
+    @Autowired
+    private MediaDeletionQueue mediaDeletionQueue;
+
+    @Autowired
+    private AvatarRenderer avatarRenderer;
+
     @Autowired
     private EmailService emailService;
 
@@ -91,35 +97,10 @@ public class UserService {
     }
 
     // METHOD FOR GENERATE A AVATAR IMAGE
-    private String generateAvatarUrl(String firstName, String lastName) {
-        // 1. Obtenemos solo el primer nombre y el primer apellido, en caso de que haya más de uno.
-        // Usamos un bloque try-catch por si los campos vienen nulos o vacíos.
-        String primerNombre = "";
-        if (firstName != null && !firstName.isEmpty()) {
-            primerNombre = firstName.split(" ")[0];
-        }
-
-        String primerApellido = "";
-        if (lastName != null && !lastName.isEmpty()) {
-            primerApellido = lastName.split(" ")[0];
-        }
-
-        // 2. Creamos la cadena específica que queremos para las iniciales
-        String nombreParaAvatar = (primerNombre + " " + primerApellido).trim(); // "Raúl Ocasio"
-
-        // 3. Codificamos esa cadena específica para la URL
-        String encodedName = URLEncoder.encode(nombreParaAvatar, StandardCharsets.UTF_8);
-
-        return "https://ui-avatars.com/api/?name=" + encodedName + "&background=random&color=fff";
-    }
-
-    private Map<String, String> generateAndUploadAvatar(String firstName, String lastName) {
-        try {
-            String avatarUrl = generateAvatarUrl(firstName, lastName);
-            return storageService.uploadFromUrl(avatarUrl, "profileimages", ImageType.PROFILE);
-        } catch (Exception e) {
-            return Collections.emptyMap(); // Devuelve un mapa vacío en caso de error
-        }
+    // Avatar de iniciales servido por la propia API: no hay llamadas remotas ni archivo que borrar después
+    private void setGeneratedAvatar(User user, String firstName, String lastName) {
+        user.setProfilePictureUrl(avatarRenderer.avatarUrl(firstName, lastName));
+        user.setProfilePicturePublicId(null);
     }
 
     @Transactional
@@ -185,16 +166,12 @@ public class UserService {
                 user.setProfilePictureUrl(fileInfo.get("url"));
                 user.setProfilePicturePublicId(fileInfo.get("publicId"));
             } catch (Exception e) {
-                // Fallback: Si la subida falla, genera y sube un avatar
-                Map<String, String> fileInfo = generateAndUploadAvatar(dto.getFirstName(), dto.getLastName());
-                user.setProfilePictureUrl(fileInfo.get("url"));
-                user.setProfilePicturePublicId(fileInfo.get("publicId"));
+                // Fallback: Si la subida falla, genera un avatar
+                setGeneratedAvatar(user, dto.getFirstName(), dto.getLastName());
             }
         } else {
-            // Si no se proporciona imagen, genera y sube un avatar
-            Map<String, String> fileInfo = generateAndUploadAvatar(dto.getFirstName(), dto.getLastName());
-            user.setProfilePictureUrl(fileInfo.get("url"));
-            user.setProfilePicturePublicId(fileInfo.get("publicId"));
+            // Si no se proporciona imagen, genera un avatar
+            setGeneratedAvatar(user, dto.getFirstName(), dto.getLastName());
         }
 
         userRepository.save(user);
@@ -270,28 +247,22 @@ public class UserService {
         // 6) Handle profile image (this is the key part)
         if (profileImage != null && !profileImage.isEmpty()) {
             try {
-                // Si se sube una nueva imagen, borra la anterior de Cloudinary (si existe)
+                // Si se sube una nueva imagen, borra la anterior de Cloudinary (si existe) al confirmar
                 if (user.getProfilePicturePublicId() != null) {
-                    // ANTES: storageService.deleteFile(user.getProfilePicturePublicId(), null);
-                    // AHORA: Especificamos que es una imagen.
-                    storageService.deleteFile(user.getProfilePicturePublicId(), "image");
+                    mediaDeletionQueue.enqueue(user.getProfilePicturePublicId(), "image");
                 }
                 Map<String, String> fileInfo = storageService.uploadImage(profileImage, "profileimages", ImageType.PROFILE);
                 user.setProfilePictureUrl(fileInfo.get("url"));
                 user.setProfilePicturePublicId(fileInfo.get("publicId"));
             } catch (Exception e) {
                 // Fallback: Si la subida falla, genera un avatar (no borra el anterior en este caso)
-                Map<String, String> fileInfo = generateAndUploadAvatar(dto.getFirstName(), dto.getLastName());
-                user.setProfilePictureUrl(fileInfo.get("url"));
-                user.setProfilePicturePublicId(fileInfo.get("publicId"));
+                setGeneratedAvatar(user, dto.getFirstName(), dto.getLastName());
             }
         } else {
-            // Si no se sube imagen Y la actual es un avatar temporal (publicId es nulo),
-            // se "actualiza" a un avatar permanente en Cloudinary.
-            if (user.getProfilePicturePublicId() == null) {
-                Map<String, String> fileInfo = generateAndUploadAvatar(dto.getFirstName(), dto.getLastName());
-                user.setProfilePictureUrl(fileInfo.get("url"));
-                user.setProfilePicturePublicId(fileInfo.get("publicId"));
+            // Si no se sube imagen Y la actual es un avatar generado, se regenera por si cambiaron las iniciales
+            // (una foto externa sin publicId, como la de un proveedor OAuth2, se conserva)
+            if (user.getProfilePicturePublicId() == null && avatarRenderer.isGeneratedAvatar(user.getProfilePictureUrl())) {
+                setGeneratedAvatar(user, dto.getFirstName(), dto.getLastName());
             }
         }
         // Si no se sube imagen y la que tiene ya es de Cloudinary, no se hace nada.
@@ -367,15 +338,13 @@ public class UserService {
 
         // Si la imagen anterior era de Cloudinary, la borramos
         if (user.getProfilePicturePublicId() != null) {
-            storageService.deleteFile(user.getProfilePicturePublicId(), "image");
+            mediaDeletionQueue.enqueue(user.getProfilePicturePublicId(), "image");
         } try {
             Map<String, String> fileInfo = storageService.uploadImage(profileImage, "profileimages", ImageType.PROFILE);
             user.setProfilePictureUrl(fileInfo.get("url"));
             user.setProfilePicturePublicId(fileInfo.get("publicId"));
         } catch (Exception e) {
-            Map<String, String> fileInfo = generateAndUploadAvatar(user.getFirstName(), user.getLastName());
-            user.setProfilePictureUrl(fileInfo.get("url"));
-            user.setProfilePicturePublicId(fileInfo.get("publicId"));
+            setGeneratedAvatar(user, user.getFirstName(), user.getLastName());
         }
 
         userRepository.save(user);
@@ -390,13 +359,11 @@ public class UserService {
 
         // Si hay una imagen en Cloudinary, la borramos
         if (user.getProfilePicturePublicId() != null) {
-            storageService.deleteFile(user.getProfilePicturePublicId(), "image");
+            mediaDeletionQueue.enqueue(user.getProfilePicturePublicId(), "image");
         }
 
-        // Siempre se restaura a un avatar por defecto subido a Cloudinary
-        Map<String, String> fileInfo = generateAndUploadAvatar(user.getFirstName(), user.getLastName());
-        user.setProfilePictureUrl(fileInfo.get("url"));
-        user.setProfilePicturePublicId(fileInfo.get("publicId"));
+        // Siempre se restaura al avatar de iniciales
+        setGeneratedAvatar(user, user.getFirstName(), user.getLastName());
 
         userRepository.save(user);
         return new UserResponse("Imagen de perfil restaurada al avatar por defecto.");
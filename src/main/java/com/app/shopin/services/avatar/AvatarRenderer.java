@@ -0,0 +1,166 @@
+package com.app.shopin.services.avatar;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Avatares de iniciales generados en el propio proceso (antes: una URL de ui-avatars.com que además se subía a
+ * Cloudinary en cada registro). El avatar depende solo de las iniciales y del color, así que la URL es estable:
+ * el registro solo guarda la URL y la imagen se dibuja la primera vez que alguien la pide.
+ * El contorno de cada letra se rasteriza una vez y se reutiliza, y los archivos codificados quedan en una caché acotada.
+ */
+@Component
+public class AvatarRenderer {
+
+    public static final int SIZE = 256;
+
+    // Colores con contraste suficiente para texto blanco
+    private static final Color[] PALETTE = {
+            new Color(0xE53935), new Color(0xD81B60), new Color(0x8E24AA), new Color(0x5E35B1),
+            new Color(0x3949AB), new Color(0x1E88E5), new Color(0x00897B), new Color(0x43A047),
+            new Color(0x6D4C41), new Color(0xF4511E), new Color(0x546E7A), new Color(0x00838F)
+    };
+
+    private static final FontRenderContext RENDER_CONTEXT = new FontRenderContext(null, true, true);
+    private static final Font FONT = new Font(Font.SANS_SERIF, Font.BOLD, SIZE * 2 / 5);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${avatar.public-url:http://localhost:8080/avatars}")
+    private String publicUrl;
+    @Value("${avatar.cache.max-size:5000}")
+    private long maxSize;
+
+    private record Glyph(Shape outline, double advance) {}
+
+    private Cache<Integer, Glyph> glyphs;
+    private Cache<String, byte[]> encoded;
+
+    @PostConstruct
+    void init() {
+        if (publicUrl.endsWith("/")) {
+            publicUrl = publicUrl.substring(0, publicUrl.length() - 1);
+        }
+        glyphs = Caffeine.newBuilder().maximumSize(1000).build();
+        encoded = Caffeine.newBuilder().maximumSize(maxSize).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, encoded, "avatars");
+    }
+
+    /**
+     * URL pública del avatar de una persona, p. ej. ".../avatars/RO-5.png". El color sale del hash del nombre
+     * completo: dos personas con las mismas iniciales no suelen compartirlo, y la misma persona siempre tiene el mismo.
+     */
+    public String avatarUrl(String firstName, String lastName) {
+        String initials = initials(firstName, lastName);
+        String fullName = (nullToEmpty(firstName) + " " + nullToEmpty(lastName)).trim().toLowerCase(Locale.ROOT);
+        int color = Math.floorMod(fullName.hashCode(), PALETTE.length);
+        return publicUrl + "/" + URLEncoder.encode(initials, StandardCharsets.UTF_8) + "-" + color + ".png";
+    }
+
+    // true también sin foto: en ambos casos se puede (re)generar sin perder nada
+    public boolean isGeneratedAvatar(String url) {
+        return url == null || url.startsWith(publicUrl + "/");
+    }
+
+    public static boolean canEncode(String format) {
+        return ImageIO.getImageWritersByFormatName(format).hasNext();
+    }
+
+    /**
+     * Imagen codificada ("png" o "webp"). Vacío si los parámetros no corresponden a un avatar que
+     * {@link #avatarUrl} pudiera haber generado, o si no hay codificador para el formato.
+     */
+    public Optional<byte[]> render(String initials, int color, String format) {
+        int letters = initials.codePointCount(0, initials.length());
+        if (letters < 1 || letters > 2 || color < 0 || color >= PALETTE.length || !canEncode(format)) {
+            return Optional.empty();
+        }
+        return Optional.of(encoded.get(initials + "|" + color + "|" + format,
+                key -> encode(draw(initials, PALETTE[color]), format)));
+    }
+
+    private BufferedImage draw(String initials, Color background) {
+        // Las letras se colocan una tras otra según su avance y el conjunto se centra por su contorno visible
+        Path2D.Double text = new Path2D.Double();
+        double x = 0;
+        for (int codePoint : initials.codePoints().toArray()) {
+            Glyph glyph = glyphs.get(codePoint, AvatarRenderer::outline);
+            text.append(AffineTransform.getTranslateInstance(x, 0).createTransformedShape(glyph.outline()), false);
+            x += glyph.advance();
+        }
+        Rectangle2D bounds = text.getBounds2D();
+
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(background);
+            graphics.fillRect(0, 0, SIZE, SIZE);
+            graphics.setColor(Color.WHITE);
+            graphics.translate((SIZE - bounds.getWidth()) / 2 - bounds.getX(),
+                    (SIZE - bounds.getHeight()) / 2 - bounds.getY());
+            graphics.fill(text);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    private static Glyph outline(int codePoint) {
+        GlyphVector vector = FONT.createGlyphVector(RENDER_CONTEXT, Character.toString(codePoint));
+        return new Glyph(vector.getOutline(), vector.getLogicalBounds().getWidth());
+    }
+
+    private static byte[] encode(BufferedImage image, String format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 * 1024);
+        try {
+            ImageIO.write(image, format, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // Primera letra del primer nombre y del primer apellido, como hacía ui-avatars
+    private static String initials(String firstName, String lastName) {
+        String initials = firstLetter(firstName) + firstLetter(lastName);
+        return initials.isEmpty() ? "?" : initials.toUpperCase(Locale.ROOT);
+    }
+
+    private static String firstLetter(String name) {
+        String trimmed = nullToEmpty(name).trim();
+        return trimmed.isEmpty() ? "" : Character.toString(trimmed.codePointAt(0));
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -2,77 +2,137 @@ package com.app.shopin.services.cloudinary;
 
 import com.app.shopin.modules.exception.CustomException;
 import com.cloudinary.Cloudinary;
+import com.cloudinary.Search;
 import com.cloudinary.Transformation;
 import com.cloudinary.utils.ObjectUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Primary;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
-@Primary
+@Qualifier("storageProvider")
+@ConditionalOnProperty(name = "storage.provider", havingValue = "cloudinary", matchIfMissing = true)
 public class CloudinaryStorageService implements StorageService {
 
     private static final Logger log = LoggerFactory.getLogger(CloudinaryStorageService.class);
 
+    private static final int DELETE_BATCH_SIZE = 100;
+
     private final Cloudinary cloudinary;
 
+    // Tamaño de cada trozo en las subidas por partes (Cloudinary exige al menos 5 MB)
+    @Value("${cloudinary.upload.chunk-size:6MB}")
+    private DataSize chunkSize;
+
     @Autowired
     public CloudinaryStorageService(Cloudinary cloudinary) {
         this.cloudinary = cloudinary;
     }
 
-    private Map<String, String> upload(byte[] fileBytes, String subfolder, String resourceType, ImageType imageType) {
+    // Subida en una sola petición; el SDK envía el File en streaming desde el disco
+    private Map<String, String> upload(File file, String subfolder, String resourceType, ImageType imageType) {
         try {
-            String uniqueId = UUID.randomUUID().toString();
-            Map<String, Object> uploadParams = new HashMap<>();
-            uploadParams.put("public_id", uniqueId);
-            uploadParams.put("folder", subfolder);
-            uploadParams.put("resource_type", resourceType);
-
-            if ("image".equals(resourceType) && imageType != null) {
-                Transformation transformation = new Transformation();
-                switch (imageType) {
-                    case PROFILE:
-                        // Receta para fotos de perfil: 96x96, enfocada en la cara.
-                        transformation.width(96).height(96).gravity("face").crop("thumb");
-                        break;
-                    case PRODUCT:
-                        // Receta para fotos de producto: máximo 1080x1080, sin deformar.
-                        transformation.width(1080).height(1080).crop("limit");
-                        break;
-                }
-                uploadParams.put("transformation", transformation);
-            }
-
-            Map uploadResult = cloudinary.uploader().upload(fileBytes, uploadParams);
-
-            Map<String, String> result = new HashMap<>();
-            result.put("url", (String) uploadResult.get("secure_url"));
-            result.put("publicId", (String) uploadResult.get("public_id"));
-            return result;
+            Map uploadResult = cloudinary.uploader().upload(file, uploadParams(subfolder, resourceType, imageType));
+            return toResult(uploadResult);
         } catch (IOException e) {
             log.error("Error al subir archivo a Cloudinary", e);
             throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al subir el archivo.");
         }
     }
 
+    /**
+     * Subida por trozos (upload_large): el archivo se envía en partes de chunkSize con un id de subida común,
+     * así que en memoria solo hay un trozo a la vez y un trozo fallido se reintenta sin reenviar lo anterior.
+     * file puede ser un File o un InputStream.
+     */
+    private Map<String, String> uploadLarge(Object file, String subfolder, String resourceType, ImageType imageType) {
+        try {
+            Map<String, Object> uploadParams = uploadParams(subfolder, resourceType, imageType);
+            uploadParams.put("chunk_size", Math.toIntExact(chunkSize.toBytes()));
+            return toResult(cloudinary.uploader().uploadLarge(file, uploadParams));
+        } catch (IOException e) {
+            log.error("Error al subir archivo por partes a Cloudinary", e);
+            throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al subir el archivo.");
+        }
+    }
+
+    private Map<String, Object> uploadParams(String subfolder, String resourceType, ImageType imageType) {
+        String uniqueId = UUID.randomUUID().toString();
+        Map<String, Object> uploadParams = new HashMap<>();
+        uploadParams.put("public_id", uniqueId);
+        uploadParams.put("folder", subfolder);
+        uploadParams.put("resource_type", resourceType);
+
+        if ("image".equals(resourceType) && imageType != null) {
+            Transformation transformation = new Transformation();
+            switch (imageType) {
+                case PROFILE:
+                    // Receta para fotos de perfil: 96x96, enfocada en la cara.
+                    transformation.width(96).height(96).gravity("face").crop("thumb");
+                    break;
+                case PRODUCT:
+                    // Receta para fotos de producto: máximo 1080x1080, sin deformar.
+                    transformation.width(1080).height(1080).crop("limit");
+                    break;
+            }
+            uploadParams.put("transformation", transformation);
+            if (imageType == ImageType.PRODUCT) {
+                // Los tamaños se generan al subir (eager): la primera visita a cada URL no espera a Cloudinary
+                List<Transformation> eager = new ArrayList<>();
+                for (ImageVariant variant : ImageVariant.values()) {
+                    eager.add(variantTransformation(variant));
+                    eager.add(variantTransformation(variant).fetchFormat("webp"));
+                }
+                uploadParams.put("eager", eager);
+            }
+        }
+        return uploadParams;
+    }
+
+    private Transformation variantTransformation(ImageVariant variant) {
+        Transformation transformation = new Transformation()
+                .width(variant.getSize()).height(variant.getSize())
+                .crop(variant.isSquare() ? "fill" : "limit");
+        return transformation.quality("auto");
+    }
+
+    private Map<String, String> toResult(Map uploadResult) {
+        Map<String, String> result = new HashMap<>();
+        result.put("url", (String) uploadResult.get("secure_url"));
+        result.put("publicId", (String) uploadResult.get("public_id"));
+        return result;
+    }
+
+    // Los MultipartFile se leen como stream: nunca se materializa el archivo completo con getBytes()
     @Override
     public Map<String, String> uploadImage(MultipartFile file, String subfolder, ImageType imageType) {
         if (!isImageFile(file)) {
             throw new CustomException(HttpStatus.BAD_REQUEST, "El archivo proporcionado no es una imagen válida.");
-        } try {
-            return upload(file.getBytes(), subfolder, "image", imageType);
+        }
+        try (InputStream input = file.getInputStream()) {
+            return uploadImage(input, subfolder, imageType);
         } catch (IOException e) {
             throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al leer el archivo de imagen.");
         }
@@ -82,25 +142,57 @@ public class CloudinaryStorageService implements StorageService {
     public Map<String, String> uploadVideo(MultipartFile file, String subfolder) {
         if (!isVideoFile(file)) {
             throw new CustomException(HttpStatus.BAD_REQUEST, "El archivo proporcionado no es un video válido.");
-        } try {
-            // CORRECCIÓN: Le pasamos los bytes del archivo y null para el ImageType
-            return upload(file.getBytes(), subfolder, "video", null);
+        }
+        try (InputStream input = file.getInputStream()) {
+            return uploadVideo(input, subfolder);
         } catch (IOException e) {
             throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al leer el archivo de video.");
         }
     }
 
+    @Override
+    public Map<String, String> uploadImage(Path file, String subfolder, ImageType imageType) {
+        return upload(file.toFile(), subfolder, "image", imageType);
+    }
+
+    @Override
+    public Map<String, String> uploadVideo(Path file, String subfolder) {
+        return uploadLarge(file.toFile(), subfolder, "video", null);
+    }
+
+    @Override
+    public Map<String, String> uploadImage(InputStream input, String subfolder, ImageType imageType) {
+        return uploadLarge(input, subfolder, "image", imageType);
+    }
+
+    @Override
+    public Map<String, String> uploadVideo(InputStream input, String subfolder) {
+        return uploadLarge(input, subfolder, "video", null);
+    }
+
     @Override
     public Map<String, String> uploadFromUrl(String url, String subfolder, ImageType imageType) {
-        try {
-            byte[] bytes = new URL(url).openStream().readAllBytes();
-            return upload(bytes, subfolder, "image", imageType);
+        try (InputStream input = new URL(url).openStream()) {
+            return uploadImage(input, subfolder, imageType);
         } catch (IOException e) {
             log.error("Error al procesar la imagen desde la URL: {}", url, e);
             throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al procesar la imagen desde la URL.");
         }
     }
 
+    // Misma transformación que en eager, así que las URLs apuntan a los derivados ya generados
+    @Override
+    public Map<String, String> imageVariantUrls(String publicId) {
+        Map<String, String> urls = new HashMap<>();
+        for (ImageVariant variant : ImageVariant.values()) {
+            urls.put(variant.urlKey(false), cloudinary.url().secure(true)
+                    .transformation(variantTransformation(variant)).generate(publicId));
+            urls.put(variant.urlKey(true), cloudinary.url().secure(true)
+                    .transformation(variantTransformation(variant).fetchFormat("webp")).generate(publicId));
+        }
+        return urls;
+    }
+
     @Override
     public void deleteFile(String publicId, String resourceType) {
         try {
@@ -112,6 +204,55 @@ public class CloudinaryStorageService implements StorageService {
         }
     }
 
+    // La API de administración admite hasta 100 publicId por llamada
+    @Override
+    public Set<String> deleteFiles(Collection<String> publicIds, String resourceType) {
+        Set<String> failed = new HashSet<>();
+        List<String> ids = new ArrayList<>(publicIds);
+        for (int from = 0; from < ids.size(); from += DELETE_BATCH_SIZE) {
+            List<String> batch = ids.subList(from, Math.min(from + DELETE_BATCH_SIZE, ids.size()));
+            try {
+                Map response = cloudinary.api().deleteResources(batch, ObjectUtils.asMap("resource_type", resourceType));
+                Map deleted = (Map) response.get("deleted");
+                for (String publicId : batch) {
+                    Object result = deleted != null ? deleted.get(publicId) : null;
+                    if (!"deleted".equals(result) && !"not_found".equals(result)) {
+                        failed.add(publicId);
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Error al eliminar {} archivos de Cloudinary", batch.size(), e);
+                failed.addAll(batch);
+            }
+        }
+        return failed;
+    }
+
+    // La Search API es la que permite ordenar por public_id (la de recursos solo ordena por fecha)
+    @Override
+    public StoredObjectPage listObjects(String folder, String resourceType, String cursor, int limit) {
+        try {
+            Search search = cloudinary.search()
+                    .expression("resource_type:" + resourceType + " AND public_id:" + folder + "/*")
+                    .sortBy("public_id", "asc")
+                    .maxResults(Math.min(limit, 500));
+            if (cursor != null) {
+                search.nextCursor(cursor);
+            }
+            Map response = search.execute();
+            List<StoredObject> objects = new ArrayList<>();
+            for (Object item : (List) response.get("resources")) {
+                Map resource = (Map) item;
+                objects.add(new StoredObject((String) resource.get("public_id"), resourceType,
+                        Instant.parse((String) resource.get("created_at"))));
+            }
+            return new StoredObjectPage(objects, (String) response.get("next_cursor"));
+        } catch (Exception e) {
+            log.error("Error al listar los archivos de Cloudinary en {}", folder, e);
+            throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al listar los archivos.");
+        }
+    }
+
     @Override
     public boolean isImageFile(MultipartFile file) {
         String contentType = file.getContentType();
@@ -0,0 +1,33 @@
+package com.app.shopin.services.cloudinary;
+
+// Tamaños precalculados de las imágenes de producto, cada uno también en WebP
+public enum ImageVariant {
+    // Miniatura cuadrada (carrito, listas compactas)
+    THUMB(160, true),
+    // Tarjeta de listado
+    CARD(480, false),
+    // Vista de detalle
+    DETAIL(1080, false);
+
+    private final int size;
+    private final boolean square;
+
+    ImageVariant(int size, boolean square) {
+        this.size = size;
+        this.square = square;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // true: se recorta para llenar el cuadrado; false: se limita el lado mayor sin deformar
+    public boolean isSquare() {
+        return square;
+    }
+
+    // Clave de la URL en el mapa que devuelve StorageService.imageVariantUrls, p. ej. "thumbUrl" o "thumbWebpUrl"
+    public String urlKey(boolean webp) {
+        return name().toLowerCase() + (webp ? "WebpUrl" : "Url");
+    }
+}
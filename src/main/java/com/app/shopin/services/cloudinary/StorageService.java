@@ -2,17 +2,48 @@ package com.app.shopin.services.cloudinary;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 
 public interface StorageService {
 
     Map<String, String> uploadImage(MultipartFile file, String subfolder, ImageType imageType);
     Map<String, String> uploadVideo(MultipartFile file, String subfolder);
 
+    // Subida desde un archivo local (p. ej. una copia temporal procesada fuera de la petición)
+    Map<String, String> uploadImage(Path file, String subfolder, ImageType imageType);
+    Map<String, String> uploadVideo(Path file, String subfolder);
+
+    // Subida en streaming desde un InputStream de tamaño desconocido, sin cargarlo entero en memoria
+    Map<String, String> uploadImage(InputStream input, String subfolder, ImageType imageType);
+    Map<String, String> uploadVideo(InputStream input, String subfolder);
+
     Map<String, String> uploadFromUrl(String url, String subfolder, ImageType imageType);
 
+    /**
+     * URLs de los tamaños precalculados (ver {@link ImageVariant}) de una imagen de producto, generados al subirla.
+     * Las claves son ImageVariant.urlKey(webp); un backend que no genere alguno simplemente no lo incluye.
+     */
+    Map<String, String> imageVariantUrls(String publicId);
+
     void deleteFile(String publicId, String resourceType);
 
+    /**
+     * Borra varios archivos del mismo tipo con el menor número de llamadas posible.
+     * Devuelve los publicId que no se pudieron borrar; los que ya no existían cuentan como borrados.
+     */
+    Set<String> deleteFiles(Collection<String> publicIds, String resourceType);
+
+    /**
+     * Una página de los objetos de un tipo guardados en la carpeta, ordenados por publicId.
+     * cursor es el nextCursor de la página anterior (null para empezar). Pensado para recorridos completos
+     * como la reconciliación de huérfanos, no para peticiones de usuario.
+     */
+    StoredObjectPage listObjects(String folder, String resourceType, String cursor, int limit);
+
     boolean isImageFile(MultipartFile file);
     boolean isVideoFile(MultipartFile file);
 }
\ No newline at end of file
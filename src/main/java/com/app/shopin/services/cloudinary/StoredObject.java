@@ -0,0 +1,10 @@
+package com.app.shopin.services.cloudinary;
+
+import java.time.Instant;
+
+// Objeto tal como lo lista el almacenamiento
+public record StoredObject(
+        String publicId,
+        String resourceType, // "image" o "video"
+        Instant createdAt
+) {}
@@ -0,0 +1,8 @@
+package com.app.shopin.services.cloudinary;
+
+import java.util.List;
+
+public record StoredObjectPage(
+        List<StoredObject> objects, // Ordenados por publicId (orden binario)
+        String nextCursor // null en la última página
+) {}
@@ -0,0 +1,70 @@
+package com.app.shopin.services.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Detección del formato por los primeros bytes del archivo (no se confía en el nombre ni en el Content-Type
+ * del cliente) y tipo MIME para servirlo.
+ */
+public final class FileSignatures {
+
+    // Bytes suficientes para todas las firmas reconocidas
+    private static final int HEADER_SIZE = 16;
+
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "jpg", "image/jpeg",
+            "png", "image/png",
+            "gif", "image/gif",
+            "webp", "image/webp",
+            "mp4", "video/mp4",
+            "mov", "video/quicktime",
+            "webm", "video/webm",
+            "bin", "application/octet-stream");
+
+    private FileSignatures() {
+    }
+
+    public static String extension(byte[] header, int length) {
+        if (startsWith(header, length, 0, 0xFF, 0xD8, 0xFF)) return "jpg";
+        if (startsWith(header, length, 0, 0x89, 'P', 'N', 'G')) return "png";
+        if (startsWith(header, length, 0, 'G', 'I', 'F', '8')) return "gif";
+        if (startsWith(header, length, 0, 'R', 'I', 'F', 'F') && startsWith(header, length, 8, 'W', 'E', 'B', 'P')) return "webp";
+        if (startsWith(header, length, 0, 0x1A, 0x45, 0xDF, 0xA3)) return "webm";
+        if (startsWith(header, length, 4, 'f', 't', 'y', 'p')) {
+            return startsWith(header, length, 8, 'q', 't', ' ', ' ') ? "mov" : "mp4";
+        }
+        return "bin";
+    }
+
+    public static String contentType(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot >= 0 ? fileName.substring(dot + 1) : "bin";
+        return CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+    }
+
+    // Tipo MIME según el contenido del archivo; application/octet-stream si no es un formato reconocido
+    public static String detectContentType(Path file) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        int length;
+        try (InputStream in = Files.newInputStream(file)) {
+            length = in.readNBytes(header, 0, header.length);
+        }
+        return CONTENT_TYPES.get(extension(header, length));
+    }
+
+    private static boolean startsWith(byte[] header, int length, int offset, int... signature) {
+        if (length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((header[offset + i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,75 @@
+package com.app.shopin.services.storage;
+
+import com.app.shopin.services.cloudinary.ImageVariant;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Redimensionado de imágenes con Java2D para el almacenamiento local (Cloudinary los genera en su servicio).
+ * El JDK no incluye un codificador WebP: solo se genera si hay un plugin de ImageIO que lo aporte.
+ */
+final class ImageVariantGenerator {
+
+    private ImageVariantGenerator() {
+    }
+
+    static boolean canWriteWebp() {
+        return ImageIO.getImageWritersByFormatName("webp").hasNext();
+    }
+
+    // null si ImageIO no sabe leer el formato del original
+    static BufferedImage read(Path file) throws IOException {
+        return ImageIO.read(file.toFile());
+    }
+
+    static void write(BufferedImage image, String format, Path target) throws IOException {
+        if (!ImageIO.write(image, format, target.toFile())) {
+            throw new IOException("No hay codificador de imágenes para " + format);
+        }
+    }
+
+    static BufferedImage resize(BufferedImage source, ImageVariant variant) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int srcX = 0;
+        int srcY = 0;
+        int srcWidth = width;
+        int srcHeight = height;
+        int targetWidth;
+        int targetHeight;
+
+        if (variant.isSquare()) {
+            // Recorte centrado al cuadrado más grande posible
+            int side = Math.min(width, height);
+            srcX = (width - side) / 2;
+            srcY = (height - side) / 2;
+            srcWidth = side;
+            srcHeight = side;
+            targetWidth = Math.min(variant.getSize(), side);
+            targetHeight = targetWidth;
+        } else {
+            // Nunca se amplía: si el original es más pequeño se queda en su tamaño
+            double scale = Math.min(1.0, (double) variant.getSize() / Math.max(width, height));
+            targetWidth = Math.max(1, (int) Math.round(width * scale));
+            targetHeight = Math.max(1, (int) Math.round(height * scale));
+        }
+
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage resized = new BufferedImage(targetWidth, targetHeight, type);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, targetWidth, targetHeight,
+                    srcX, srcY, srcX + srcWidth, srcY + srcHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+}
@@ -0,0 +1,344 @@
+package com.app.shopin.services.storage;
+
+import com.app.shopin.modules.exception.CustomException;
+import com.app.shopin.services.cloudinary.ImageType;
+import com.app.shopin.services.cloudinary.ImageVariant;
+import com.app.shopin.services.cloudinary.StorageService;
+import com.app.shopin.services.cloudinary.StoredObject;
+import com.app.shopin.services.cloudinary.StoredObjectPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Almacenamiento en el sistema de archivos local, alternativa a Cloudinary para desarrollo, pruebas de integración
+ * y benchmarks sin servicios externos (storage.provider=local).
+ * Los archivos se guardan por contenido: {subcarpeta}/{aa}/{bb}/{sha256}.{ext}. Se escriben primero en un temporal
+ * dentro de la misma raíz y se mueven con un rename atómico, así nunca se sirve un archivo a medio escribir.
+ * Como la ruta depende del contenido, un archivo publicado no cambia nunca y se puede cachear indefinidamente.
+ * No aplica las transformaciones de imagen de Cloudinary: se guarda el original. El conteo de referencias de los
+ * archivos compartidos lo lleva el registro de multimedia (DeduplicatingStorageService), no este backend.
+ */
+@Service
+@Qualifier("storageProvider")
+@ConditionalOnProperty(name = "storage.provider", havingValue = "local")
+public class LocalFileStorageService implements StorageService {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalFileStorageService.class);
+
+    private static final String TEMP_DIR = ".tmp";
+
+    private final Path root;
+    private final String publicUrl;
+
+    public LocalFileStorageService(
+            @Value("${storage.local.root:./storage}") String root,
+            @Value("${storage.local.public-url:http://localhost:8080/media}") String publicUrl) throws IOException {
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        this.publicUrl = publicUrl.endsWith("/") ? publicUrl.substring(0, publicUrl.length() - 1) : publicUrl;
+        Files.createDirectories(this.root.resolve(TEMP_DIR));
+    }
+
+    // --- SUBIDAS ---
+
+    @Override
+    public Map<String, String> uploadImage(MultipartFile file, String subfolder, ImageType imageType) {
+        if (!isImageFile(file)) {
+            throw new CustomException(HttpStatus.BAD_REQUEST, "El archivo proporcionado no es una imagen válida.");
+        }
+        return withVariants(storeMultipart(file, subfolder), imageType);
+    }
+
+    @Override
+    public Map<String, String> uploadVideo(MultipartFile file, String subfolder) {
+        if (!isVideoFile(file)) {
+            throw new CustomException(HttpStatus.BAD_REQUEST, "El archivo proporcionado no es un video válido.");
+        }
+        return storeMultipart(file, subfolder);
+    }
+
+    @Override
+    public Map<String, String> uploadImage(Path file, String subfolder, ImageType imageType) {
+        return withVariants(storeFile(file, subfolder), imageType);
+    }
+
+    @Override
+    public Map<String, String> uploadVideo(Path file, String subfolder) {
+        return storeFile(file, subfolder);
+    }
+
+    @Override
+    public Map<String, String> uploadImage(InputStream input, String subfolder, ImageType imageType) {
+        return withVariants(store(input, subfolder), imageType);
+    }
+
+    @Override
+    public Map<String, String> uploadVideo(InputStream input, String subfolder) {
+        return store(input, subfolder);
+    }
+
+    @Override
+    public Map<String, String> uploadFromUrl(String url, String subfolder, ImageType imageType) {
+        try (InputStream input = new URL(url).openStream()) {
+            return store(input, subfolder);
+        } catch (IOException e) {
+            log.error("Error al procesar la imagen desde la URL: {}", url, e);
+            throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al procesar la imagen desde la URL.");
+        }
+    }
+
+    @Override
+    public void deleteFile(String publicId, String resourceType) {
+        if (publicId == null || publicId.isBlank()) return;
+        try {
+            Optional<Path> file = resolve(publicId);
+            if (file.isPresent()) {
+                Files.deleteIfExists(file.get());
+                for (ImageVariant variant : ImageVariant.values()) {
+                    Files.deleteIfExists(root.resolve(variantId(publicId, variant, false)));
+                    Files.deleteIfExists(root.resolve(variantId(publicId, variant, true)));
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error al eliminar el archivo local: {}", publicId, e);
+            throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al eliminar el archivo.");
+        }
+    }
+
+    // En disco no hay llamadas remotas que agrupar: se borra uno a uno
+    @Override
+    public Set<String> deleteFiles(Collection<String> publicIds, String resourceType) {
+        Set<String> failed = new HashSet<>();
+        for (String publicId : publicIds) {
+            try {
+                deleteFile(publicId, resourceType);
+            } catch (CustomException e) {
+                failed.add(publicId);
+            }
+        }
+        return failed;
+    }
+
+    // Recorre la carpeta entera en cada página: suficiente para desarrollo y pruebas, que es el uso de este backend
+    @Override
+    public StoredObjectPage listObjects(String folder, String resourceType, String cursor, int limit) {
+        Path directory = root.resolve(folder).normalize();
+        if (!directory.startsWith(root) || !Files.isDirectory(directory)) {
+            return new StoredObjectPage(List.of(), null);
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            List<String> page = files
+                    .filter(Files::isRegularFile)
+                    .map(file -> root.relativize(file).toString().replace(File.separatorChar, '/'))
+                    // Los tamaños precalculados van con su original y se borran con él
+                    .filter(publicId -> !publicId.substring(publicId.lastIndexOf('/') + 1).contains("_"))
+                    .filter(publicId -> FileSignatures.contentType(publicId).startsWith(resourceType + "/"))
+                    .filter(publicId -> cursor == null || publicId.compareTo(cursor) > 0)
+                    .sorted()
+                    .limit(limit + 1L)
+                    .toList();
+            boolean hasMore = page.size() > limit;
+            List<StoredObject> objects = new ArrayList<>();
+            for (String publicId : hasMore ? page.subList(0, limit) : page) {
+                Instant createdAt = Files.getLastModifiedTime(root.resolve(publicId)).toInstant();
+                objects.add(new StoredObject(publicId, resourceType, createdAt));
+            }
+            return new StoredObjectPage(objects, hasMore ? objects.getLast().publicId() : null);
+        } catch (IOException e) {
+            log.error("Error al listar los archivos locales en {}", folder, e);
+            throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al listar los archivos.");
+        }
+    }
+
+    // Solo incluye los tamaños que existen en disco (p. ej. no hay WebP sin plugin de ImageIO)
+    @Override
+    public Map<String, String> imageVariantUrls(String publicId) {
+        Map<String, String> urls = new HashMap<>();
+        for (ImageVariant variant : ImageVariant.values()) {
+            for (boolean webp : new boolean[]{false, true}) {
+                String variantId = variantId(publicId, variant, webp);
+                if (Files.isRegularFile(root.resolve(variantId))) {
+                    urls.put(variant.urlKey(webp), publicUrl + "/" + variantId);
+                }
+            }
+        }
+        return urls;
+    }
+
+    @Override
+    public boolean isImageFile(MultipartFile file) {
+        String contentType = file.getContentType();
+        return contentType != null && contentType.startsWith("image/");
+    }
+
+    @Override
+    public boolean isVideoFile(MultipartFile file) {
+        String contentType = file.getContentType();
+        return contentType != null && contentType.startsWith("video/");
+    }
+
+    /**
+     * Ruta en disco de un publicId, o vacío si no existe o queda fuera de la raíz (p. ej. "../" en la URL).
+     */
+    public Optional<Path> resolve(String publicId) {
+        Path file = root.resolve(publicId).normalize();
+        if (!file.startsWith(root) || file.startsWith(root.resolve(TEMP_DIR)) || !Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        return Optional.of(file);
+    }
+
+    // Se deduce de la extensión, que a su vez se eligió por la firma del contenido al guardarlo
+    public String contentTypeOf(Path file) {
+        return FileSignatures.contentType(file.getFileName().toString());
+    }
+
+    // --- ESCRITURA POR CONTENIDO ---
+
+    private Map<String, String> storeMultipart(MultipartFile file, String subfolder) {
+        try (InputStream input = file.getInputStream()) {
+            return store(input, subfolder);
+        } catch (IOException e) {
+            throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al leer el archivo.");
+        }
+    }
+
+    private Map<String, String> storeFile(Path file, String subfolder) {
+        try (InputStream input = Files.newInputStream(file)) {
+            return store(input, subfolder);
+        } catch (IOException e) {
+            throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al leer el archivo.");
+        }
+    }
+
+    // El hash se calcula mientras se copia: el contenido se lee una sola vez y nunca entero en memoria
+    private Map<String, String> store(InputStream input, String subfolder) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(root.resolve(TEMP_DIR), "upload-", null);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] header = new byte[16];
+            int headerLength;
+            try (DigestInputStream in = new DigestInputStream(input, digest);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                headerLength = in.readNBytes(header, 0, header.length);
+                out.write(header, 0, headerLength);
+                in.transferTo(out);
+            }
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            String publicId = "%s/%s/%s/%s.%s".formatted(subfolder, hash.substring(0, 2), hash.substring(2, 4),
+                    hash, FileSignatures.extension(header, headerLength));
+            Path target = root.resolve(publicId);
+            Files.createDirectories(target.getParent());
+            if (Files.exists(target)) {
+                // Mismo contenido ya publicado: se reutiliza
+                Files.delete(temp);
+            } else {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+
+            Map<String, String> result = new HashMap<>();
+            result.put("url", publicUrl + "/" + publicId);
+            result.put("publicId", publicId);
+            return result;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.error("Error al guardar el archivo en el almacenamiento local", e);
+            deleteQuietly(temp);
+            throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "Error al subir el archivo.");
+        }
+    }
+
+    // --- TAMAÑOS PRECALCULADOS ---
+
+    private Map<String, String> withVariants(Map<String, String> stored, ImageType imageType) {
+        if (imageType == ImageType.PRODUCT) {
+            generateVariants(stored.get("publicId"));
+        }
+        return stored;
+    }
+
+    // Los tamaños se guardan junto al original: {hash}_{tamaño}.{ext}
+    private String variantId(String publicId, ImageVariant variant, boolean webp) {
+        int dot = publicId.lastIndexOf('.');
+        String base = dot >= 0 ? publicId.substring(0, dot) : publicId;
+        String extension = webp ? "webp" : variantFormat(publicId);
+        return base + "_" + variant.name().toLowerCase() + "." + extension;
+    }
+
+    // PNG para conservar la transparencia de PNG/GIF; JPEG para el resto
+    private String variantFormat(String publicId) {
+        return publicId.endsWith(".png") || publicId.endsWith(".gif") ? "png" : "jpg";
+    }
+
+    // Un fallo aquí no invalida la subida: la imagen original ya está publicada
+    private void generateVariants(String publicId) {
+        try {
+            BufferedImage original = ImageVariantGenerator.read(root.resolve(publicId));
+            if (original == null) {
+                log.warn("Formato no soportado por ImageIO, sin tamaños precalculados: {}", publicId);
+                return;
+            }
+            boolean webp = ImageVariantGenerator.canWriteWebp();
+            for (ImageVariant variant : ImageVariant.values()) {
+                BufferedImage resized = ImageVariantGenerator.resize(original, variant);
+                writeVariant(resized, variantFormat(publicId), variantId(publicId, variant, false));
+                if (webp) {
+                    writeVariant(resized, "webp", variantId(publicId, variant, true));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("No se pudieron generar los tamaños de {}", publicId, e);
+        }
+    }
+
+    private void writeVariant(BufferedImage image, String format, String variantId) throws IOException {
+        Path target = root.resolve(variantId);
+        if (Files.exists(target)) {
+            return; // Mismo contenido ya procesado
+        }
+        Path temp = Files.createTempFile(root.resolve(TEMP_DIR), "variant-", null);
+        try {
+            ImageVariantGenerator.write(image, format, temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar el temporal {}", file, e);
+        }
+    }
+}
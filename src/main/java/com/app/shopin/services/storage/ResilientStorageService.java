@@ -0,0 +1,243 @@
+package com.app.shopin.services.storage;
+
+import com.app.shopin.modules.exception.CustomException;
+import com.app.shopin.services.cloudinary.ImageType;
+import com.app.shopin.services.cloudinary.StorageService;
+import com.app.shopin.services.cloudinary.StoredObjectPage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Protege a quien llama de un almacenamiento lento o caído. Cada llamada remota se ejecuta en un pool propio y
+ * acotado (bulkhead): si está lleno se rechaza al momento en lugar de acumular hilos de Tomcat esperando.
+ * Quien llama espera como mucho el timeout de la operación, y un circuit breaker corta las llamadas mientras la tasa
+ * de fallos sea alta, así que con Cloudinary caído las peticiones fallan rápido y caen en su alternativa
+ * (p. ej. el avatar generado en lugar de la foto subida).
+ * Errores del cliente (4xx, como un archivo que no es imagen) no cuentan como fallos del almacenamiento.
+ */
+@Service
+@Qualifier("storageBackend")
+public class ResilientStorageService implements StorageService {
+
+    private static final Logger log = LoggerFactory.getLogger(ResilientStorageService.class);
+
+    @Autowired
+    @Qualifier("storageProvider")
+    private StorageService provider;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${storage.resilience.threads:16}")
+    private int threads;
+    @Value("${storage.resilience.queue-capacity:32}")
+    private int queueCapacity;
+    @Value("${storage.resilience.image-timeout:60s}")
+    private Duration imageTimeout;
+    @Value("${storage.resilience.video-timeout:15m}")
+    private Duration videoTimeout;
+    @Value("${storage.resilience.delete-timeout:15s}")
+    private Duration deleteTimeout;
+    @Value("${storage.resilience.batch-delete-timeout:2m}")
+    private Duration batchDeleteTimeout;
+    @Value("${storage.resilience.list-timeout:30s}")
+    private Duration listTimeout;
+    @Value("${storage.resilience.circuit.window-size:50}")
+    private int windowSize;
+    @Value("${storage.resilience.circuit.minimum-calls:10}")
+    private int minimumCalls;
+    @Value("${storage.resilience.circuit.failure-rate:0.5}")
+    private double failureRate;
+    @Value("${storage.resilience.circuit.open-duration:30s}")
+    private Duration openDuration;
+
+    private ThreadPoolExecutor executor;
+    private CircuitBreaker circuitBreaker;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        // AbortPolicy: con el pool y la cola llenos la llamada se rechaza, nunca la hace el hilo de la petición
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "storage-call-" + threadNumber.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRate, openDuration);
+
+        Gauge.builder("shopin.storage.bulkhead.queue", executor, e -> e.getQueue().size())
+                .description("Llamadas al almacenamiento esperando un hilo libre")
+                .register(meterRegistry);
+        Gauge.builder("shopin.storage.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("Estado del circuit breaker del almacenamiento: 0 cerrado, 1 abierto, 2 semiabierto")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    // --- LLAMADAS REMOTAS ---
+
+    @Override
+    public Map<String, String> uploadImage(MultipartFile file, String subfolder, ImageType imageType) {
+        return call("upload", imageTimeout, () -> provider.uploadImage(file, subfolder, imageType));
+    }
+
+    @Override
+    public Map<String, String> uploadVideo(MultipartFile file, String subfolder) {
+        return call("upload", videoTimeout, () -> provider.uploadVideo(file, subfolder));
+    }
+
+    @Override
+    public Map<String, String> uploadImage(Path file, String subfolder, ImageType imageType) {
+        return call("upload", imageTimeout, () -> provider.uploadImage(file, subfolder, imageType));
+    }
+
+    @Override
+    public Map<String, String> uploadVideo(Path file, String subfolder) {
+        return call("upload", videoTimeout, () -> provider.uploadVideo(file, subfolder));
+    }
+
+    @Override
+    public Map<String, String> uploadImage(InputStream input, String subfolder, ImageType imageType) {
+        return call("upload", imageTimeout, () -> provider.uploadImage(input, subfolder, imageType));
+    }
+
+    @Override
+    public Map<String, String> uploadVideo(InputStream input, String subfolder) {
+        return call("upload", videoTimeout, () -> provider.uploadVideo(input, subfolder));
+    }
+
+    @Override
+    public Map<String, String> uploadFromUrl(String url, String subfolder, ImageType imageType) {
+        return call("upload", imageTimeout, () -> provider.uploadFromUrl(url, subfolder, imageType));
+    }
+
+    @Override
+    public void deleteFile(String publicId, String resourceType) {
+        call("delete", deleteTimeout, () -> {
+            provider.deleteFile(publicId, resourceType);
+            return null;
+        });
+    }
+
+    @Override
+    public Set<String> deleteFiles(Collection<String> publicIds, String resourceType) {
+        return call("delete", batchDeleteTimeout, () -> provider.deleteFiles(publicIds, resourceType));
+    }
+
+    @Override
+    public StoredObjectPage listObjects(String folder, String resourceType, String cursor, int limit) {
+        return call("list", listTimeout, () -> provider.listObjects(folder, resourceType, cursor, limit));
+    }
+
+    // --- SIN E/S REMOTA ---
+
+    @Override
+    public Map<String, String> imageVariantUrls(String publicId) {
+        return provider.imageVariantUrls(publicId);
+    }
+
+    @Override
+    public boolean isImageFile(MultipartFile file) {
+        return provider.isImageFile(file);
+    }
+
+    @Override
+    public boolean isVideoFile(MultipartFile file) {
+        return provider.isVideoFile(file);
+    }
+
+    // --- BULKHEAD, TIMEOUT Y CIRCUIT BREAKER ---
+
+    private <T> T call(String operation, Duration timeout, Supplier<T> action) {
+        if (!circuitBreaker.tryAcquire()) {
+            record(operation, "rejected", 0);
+            throw new CustomException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "El almacenamiento de archivos no está disponible. Inténtalo más tarde.");
+        }
+
+        long start = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(action::get);
+        } catch (RejectedExecutionException e) {
+            // Pool saturado: no es un fallo del almacenamiento, pero tampoco se puede esperar por él
+            circuitBreaker.onSuccess();
+            record(operation, "rejected", 0);
+            throw new CustomException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "El almacenamiento de archivos está saturado. Inténtalo más tarde.");
+        }
+
+        try {
+            T result = future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            circuitBreaker.onSuccess();
+            record(operation, "success", System.nanoTime() - start);
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            circuitBreaker.onFailure();
+            record(operation, "timeout", System.nanoTime() - start);
+            log.warn("La operación {} del almacenamiento superó {}", operation, timeout);
+            throw new CustomException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "El almacenamiento de archivos tardó demasiado en responder.");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            circuitBreaker.onSuccess();
+            record(operation, "cancelled", System.nanoTime() - start);
+            throw new CustomException(HttpStatus.SERVICE_UNAVAILABLE, "Operación de almacenamiento interrumpida.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CustomException custom && custom.getStatus().is4xxClientError()) {
+                circuitBreaker.onSuccess();
+                record(operation, "client_error", System.nanoTime() - start);
+                throw custom;
+            }
+            circuitBreaker.onFailure();
+            record(operation, "failure", System.nanoTime() - start);
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new CustomException(HttpStatus.INTERNAL_SERVER_ERROR, "Error en el almacenamiento de archivos.");
+        }
+    }
+
+    // Con histograma publicado: p95/p99 por operación y tasa de fallos por el tag outcome
+    private void record(String operation, String outcome, long nanos) {
+        Timer.builder("shopin.storage.calls")
+                .description("Llamadas al almacenamiento por operación y resultado")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
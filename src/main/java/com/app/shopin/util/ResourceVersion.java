@@ -0,0 +1,36 @@
+package com.app.shopin.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+
+/**
+ * Versión de un recurso para peticiones condicionales: ETag fuerte y, si se conoce, fecha de última modificación.
+ * El ETag es un resumen de las partes que identifican el estado del recurso, nunca del cuerpo serializado.
+ */
+public record ResourceVersion(String etag, long lastModified) {
+
+    public static ResourceVersion of(LocalDateTime lastModified, Object... parts) {
+        long millis = lastModified != null
+                ? lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : -1;
+        return new ResourceVersion(digest(parts), millis);
+    }
+
+    public static String digest(Object... parts) {
+        StringBuilder source = new StringBuilder();
+        for (Object part : parts) {
+            source.append(part).append('|');
+        }
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            byte[] hash = sha.digest(source.toString().getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.app.shopin.modules.inventory.repository;
+
+import com.app.shopin.modules.cart.entity.Cart;
+import com.app.shopin.modules.inventory.dto.ReleasedStock;
+import com.app.shopin.modules.inventory.entity.StockReservation;
+import com.app.shopin.modules.inventory.service.InventoryService;
+import com.app.shopin.modules.product.entity.Category;
+import com.app.shopin.modules.product.entity.Product;
+import com.app.shopin.modules.user.entity.User;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@Transactional
+class StockReservationRepositoryTests {
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private EntityManager entityManager;
+
+    private Cart cart;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setUsername("reservas-" + suffix);
+        user.setDiscriminator("0001");
+        user.setEmail("reservas-" + suffix + "@example.com");
+        user.setPassword("x");
+        entityManager.persist(user);
+
+        cart = new Cart();
+        cart.setUser(user);
+        entityManager.persist(cart);
+
+        Category category = new Category();
+        category.setName("test-" + suffix);
+        entityManager.persist(category);
+
+        product = new Product();
+        product.setSku("SKU-" + suffix);
+        product.setName("Producto reservado");
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStockQuantity(10);
+        product.setCategory(category);
+        entityManager.persist(product);
+
+        LocalDateTime now = LocalDateTime.now();
+        reserve(3, now.minusMinutes(5));
+        reserve(1, now.minusMinutes(1));
+        reserve(2, now.plusMinutes(10));
+        entityManager.flush();
+    }
+
+    @Test
+    void releaseExpiredReturnsUnitsOfExpiredReservationsOnly() {
+        List<ReleasedStock> released = reservationRepository.releaseExpired(LocalDateTime.now());
+
+        assertEquals(1, released.size());
+        assertEquals(product.getId(), released.getFirst().getProductId());
+        assertEquals(4L, released.getFirst().getQuantity());
+        assertEquals(1, reservationRepository.findByCartId(cart.getId()).size());
+
+        entityManager.clear();
+        assertEquals(14, entityManager.find(Product.class, product.getId()).getStockQuantity());
+    }
+
+    @Test
+    void releaseExpiredWithNothingDueChangesNothing() {
+        List<ReleasedStock> released = reservationRepository.releaseExpired(LocalDateTime.now().minusHours(1));
+
+        assertEquals(0, released.size());
+        assertEquals(3, reservationRepository.findByCartId(cart.getId()).size());
+    }
+
+    @Test
+    void releasingRefreshesProductsAlreadyLoadedInTheTransaction() {
+        // product sigue gestionado por el contexto de persistencia desde setUp
+        inventoryService.releaseExpiredReservations();
+
+        assertEquals(14, product.getStockQuantity());
+    }
+
+    private void reserve(int quantity, LocalDateTime expiresAt) {
+        StockReservation reservation = new StockReservation();
+        reservation.setCart(cart);
+        reservation.setProduct(product);
+        reservation.setQuantity(quantity);
+        reservation.setExpiresAt(expiresAt);
+        entityManager.persist(reservation);
+    }
+}
@@ -0,0 +1,79 @@
+package com.app.shopin.modules.media.repository;
+
+import com.app.shopin.modules.media.entity.MediaObject;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+@Transactional
+class MediaObjectRepositoryTests {
+
+    @Autowired
+    private MediaObjectRepository mediaObjectRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    private MediaObject object;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString().replace("-", "");
+        object = new MediaObject();
+        object.setContentHash(suffix);
+        object.setVariant("image:PRODUCT:products");
+        object.setPublicId("products/" + suffix);
+        object.setUrl("https://example.com/products/" + suffix);
+        object.setResourceType("image");
+        object.setRefCount(1);
+        entityManager.persist(object);
+        entityManager.flush();
+    }
+
+    @Test
+    void incrementRefCountAddsOneReference() {
+        assertEquals(1, mediaObjectRepository.incrementRefCount(object.getId()));
+        assertEquals(1, mediaObjectRepository.incrementRefCount(object.getId()));
+
+        assertEquals(3, reloadRefCount());
+    }
+
+    @Test
+    void incrementRefCountOnMissingRowChangesNothing() {
+        assertEquals(0, mediaObjectRepository.incrementRefCount(-1L));
+    }
+
+    @Test
+    void incrementAfterTheLastReleaseDeletedTheRowFindsNothing() {
+        assertEquals(Optional.of(0), mediaObjectRepository.decrementRefCount(object.getPublicId()));
+        assertEquals(1, mediaObjectRepository.deleteIfUnreferenced(object.getPublicId()));
+
+        // Lo que DeduplicatingStorageService interpreta como "no reutilizable"
+        assertEquals(0, mediaObjectRepository.incrementRefCount(object.getId()));
+        assertFalse(mediaObjectRepository.existsByPublicId(object.getPublicId()));
+    }
+
+    @Test
+    void incrementBetweenReleaseAndDeleteKeepsTheRow() {
+        assertEquals(Optional.of(0), mediaObjectRepository.decrementRefCount(object.getPublicId()));
+        assertEquals(1, mediaObjectRepository.incrementRefCount(object.getId()));
+
+        assertEquals(0, mediaObjectRepository.deleteIfUnreferenced(object.getPublicId()));
+        assertEquals(1, reloadRefCount());
+    }
+
+    private int reloadRefCount() {
+        // Las sentencias de actualización no pasan por el contexto de persistencia
+        entityManager.clear();
+        return mediaObjectRepository.findById(object.getId()).orElseThrow().getRefCount();
+    }
+}
@@ -0,0 +1,107 @@
+package com.app.shopin.modules.pricing.service;
+
+import com.app.shopin.modules.product.dto.CategoryDTO;
+import com.app.shopin.modules.product.service.CategoryTree;
+import com.app.shopin.modules.promotion.dto.PromotionTarget;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PromotionIndexTests {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    // Ropa (1) > Camisetas (2) > Manga corta (3); Hogar (4) aparte
+    private final CategoryTree tree = CategoryTree.build(List.of(
+            new CategoryDTO(1L, "Ropa", null, null),
+            new CategoryDTO(2L, "Camisetas", null, 1L),
+            new CategoryDTO(3L, "Manga corta", null, 2L),
+            new CategoryDTO(4L, "Hogar", null, null)));
+
+    @Test
+    void noPromotionsMeansNoDiscount() {
+        PromotionIndex index = PromotionIndex.build(List.of(), List.of());
+
+        assertEquals(0, index.bestDiscount(10L, 3L, tree, NOW));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void takesTheHighestOfProductAndCategoryPromotions() {
+        PromotionIndex index = PromotionIndex.build(
+                List.of(target(10L, 15), target(10L, 5), target(11L, 40)),
+                List.of(target(3L, 20)));
+
+        assertEquals(20, index.bestDiscount(10L, 3L, tree, NOW));
+        assertEquals(40, index.bestDiscount(11L, 3L, tree, NOW));
+        assertEquals(15, index.bestDiscount(10L, 4L, tree, NOW));
+    }
+
+    @Test
+    void categoryPromotionsApplyToEveryDescendant() {
+        PromotionIndex index = PromotionIndex.build(List.of(), List.of(target(1L, 10), target(2L, 25)));
+
+        assertEquals(25, index.bestDiscount(10L, 3L, tree, NOW));
+        assertEquals(25, index.bestDiscount(10L, 2L, tree, NOW));
+        assertEquals(10, index.bestDiscount(10L, 1L, tree, NOW));
+        assertEquals(0, index.bestDiscount(10L, 4L, tree, NOW));
+    }
+
+    @Test
+    void windowsAreInclusiveAtBothEnds() {
+        PromotionIndex index = PromotionIndex.build(List.of(
+                new PromotionTarget(10L, 30, NOW, NOW.plusDays(1)),
+                new PromotionTarget(11L, 30, NOW.minusDays(1), NOW),
+                new PromotionTarget(12L, 30, NOW.plusSeconds(1), null),
+                new PromotionTarget(13L, 30, null, NOW.minusSeconds(1)),
+                new PromotionTarget(14L, 30, null, null)), List.of());
+
+        assertEquals(30, index.bestDiscount(10L, null, tree, NOW));
+        assertEquals(30, index.bestDiscount(11L, null, tree, NOW));
+        assertEquals(0, index.bestDiscount(12L, null, tree, NOW));
+        assertEquals(0, index.bestDiscount(13L, null, tree, NOW));
+        assertEquals(30, index.bestDiscount(14L, null, tree, NOW));
+    }
+
+    @Test
+    void inactiveHigherDiscountDoesNotHideAnActiveLowerOne() {
+        PromotionIndex index = PromotionIndex.build(List.of(
+                new PromotionTarget(10L, 50, NOW.plusDays(1), NOW.plusDays(2)),
+                new PromotionTarget(10L, 10, null, null)), List.of());
+
+        assertEquals(10, index.bestDiscount(10L, null, tree, NOW));
+        assertEquals(50, index.bestDiscount(10L, null, tree, NOW.plusDays(1)));
+    }
+
+    @Test
+    void ignoresTargetsWithoutAPositiveDiscount() {
+        PromotionIndex index = PromotionIndex.build(
+                List.of(target(10L, 0), new PromotionTarget(10L, null, null, null)),
+                List.of(target(3L, -5)));
+
+        assertEquals(0, index.bestDiscount(10L, 3L, tree, NOW));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void newProductsWithoutIdOnlyGetCategoryPromotions() {
+        PromotionIndex index = PromotionIndex.build(List.of(target(10L, 60)), List.of(target(2L, 20)));
+
+        assertEquals(20, index.bestDiscount(null, 3L, tree, NOW));
+    }
+
+    @Test
+    void unknownCategoryStillChecksItsOwnPromotions() {
+        // Categoría creada después de la instantánea del árbol: no hay ancestros que recorrer
+        PromotionIndex index = PromotionIndex.build(List.of(), List.of(target(99L, 35), target(1L, 10)));
+
+        assertEquals(35, index.bestDiscount(10L, 99L, tree, NOW));
+    }
+
+    private static PromotionTarget target(Long targetId, Integer discountPercent) {
+        return new PromotionTarget(targetId, discountPercent, null, null);
+    }
+}
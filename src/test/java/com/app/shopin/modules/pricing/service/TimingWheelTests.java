@@ -0,0 +1,112 @@
+package com.app.shopin.modules.pricing.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTests {
+
+    // Ticks de 10 ms y 8 cubetas: una vuelta completa son 80 ms
+    private final TimingWheel<String> wheel = new TimingWheel<>(10, 8, 0);
+
+    @Test
+    void deliversWhenTheDeadlineTickIsReached() {
+        wheel.schedule(15, "a");
+
+        // 15 ms se redondea al tick 2 (20 ms): nunca antes de tiempo
+        assertEquals(List.of(), wheel.advance(19));
+        assertEquals(List.of("a"), wheel.advance(20));
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test
+    void pastDeadlinesFireOnTheNextTick() {
+        wheel.advance(50);
+        wheel.schedule(10, "tarde");
+
+        assertEquals(List.of(), wheel.advance(55));
+        assertEquals(List.of("tarde"), wheel.advance(60));
+    }
+
+    @Test
+    void advancingBackwardsOrWithinTheSameTickDoesNothing() {
+        wheel.schedule(20, "a");
+        wheel.advance(15);
+
+        assertEquals(List.of(), wheel.advance(12));
+        assertEquals(List.of(), wheel.advance(19));
+        assertEquals(1, wheel.pending());
+    }
+
+    @Test
+    void cancelledTimeoutsAreDroppedWhenTheirBucketIsVisited() {
+        TimingWheel.Timeout<String> cancelled = wheel.schedule(30, "cancelado");
+        wheel.schedule(30, "vigente");
+        cancelled.cancel();
+
+        assertEquals(2, wheel.pending());
+        assertEquals(List.of("vigente"), wheel.advance(30));
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test
+    void timeoutsMoreThanOneLapAwayWaitInTheirBucket() {
+        // Tick 10 comparte cubeta (10 & 7 = 2) con el tick 2
+        wheel.schedule(100, "segunda-vuelta");
+
+        assertEquals(List.of(), wheel.advance(20));
+        assertEquals(List.of(), wheel.advance(99));
+        assertEquals(1, wheel.pending());
+        assertEquals(List.of("segunda-vuelta"), wheel.advance(100));
+    }
+
+    @Test
+    void wrapsAroundTheWheelRepeatedly() {
+        for (int lap = 0; lap < 3; lap++) {
+            long deadline = lap * 80 + 70;
+            wheel.schedule(deadline, "vuelta-" + lap);
+
+            assertEquals(List.of(), wheel.advance(deadline - 10));
+            assertEquals(List.of("vuelta-" + lap), wheel.advance(deadline));
+        }
+    }
+
+    @Test
+    void aPauseLongerThanALapVisitsEachBucketOnceAndDeliversEverythingDue() {
+        wheel.schedule(30, "a");
+        wheel.schedule(70, "b");
+        wheel.schedule(500, "c");
+        wheel.schedule(2000, "lejano");
+
+        // 100 ticks de golpe: solo se recorren las 8 cubetas, y lo que vence más tarde se queda
+        List<String> due = wheel.advance(1000);
+
+        assertEquals(3, due.size());
+        assertTrue(due.containsAll(List.of("a", "b", "c")));
+        assertEquals(1, wheel.pending());
+        assertEquals(List.of(), wheel.advance(1990));
+        assertEquals(List.of("lejano"), wheel.advance(2000));
+    }
+
+    @Test
+    void aPauseEndingMidLapStillDeliversTheOverdueTimeouts() {
+        // El salto acaba en el tick 13: la ventana revisada son los ticks 6..13, que cubren todas las cubetas
+        wheel.schedule(20, "a");
+        wheel.schedule(130, "b");
+        wheel.schedule(140, "siguiente");
+
+        assertTrue(wheel.advance(135).containsAll(List.of("a", "b")));
+        assertEquals(List.of("siguiente"), wheel.advance(140));
+    }
+
+    @Test
+    void rejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<String>(0, 8, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<String>(10, 6, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<String>(10, 0, 0));
+    }
+}
@@ -0,0 +1,120 @@
+package com.app.shopin.modules.product.service;
+
+import com.app.shopin.modules.pricing.service.PricingService;
+import com.app.shopin.modules.product.dto.ProductDTO;
+import com.app.shopin.modules.product.dto.ProductSearchCriteria;
+import com.app.shopin.modules.product.entity.Category;
+import com.app.shopin.modules.product.entity.Product;
+import com.app.shopin.modules.product.entity.ProductMedia;
+import com.app.shopin.modules.promotion.entity.Promotion;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class ProductServiceQueryCountTests {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private PricingService pricingService;
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+    private Category category;
+    private Long firstProductId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        category = new Category();
+        category.setName("test-" + UUID.randomUUID());
+        entityManager.persist(category);
+
+        Promotion promotion = new Promotion();
+        promotion.setName("Promo de prueba");
+        promotion.setDiscountPercent(10);
+        promotion.setActive(true);
+
+        List<Long> productIds = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Product product = new Product();
+            product.setSku("SKU-" + UUID.randomUUID());
+            product.setName("Producto " + i);
+            product.setPrice(new BigDecimal("100.00"));
+            product.setDiscountPercent(5);
+            product.setStockQuantity(10);
+            product.setCategory(category);
+            for (int m = 0; m < 2; m++) {
+                ProductMedia media = new ProductMedia();
+                media.setProduct(product);
+                media.setMediaType("IMAGE");
+                media.setUrl("https://example.com/" + i + "/" + m + ".png");
+                media.setPublicId("test/" + i + "/" + m);
+                product.getMedia().add(media);
+            }
+            entityManager.persist(product);
+            promotion.getProducts().add(product);
+            productIds.add(product.getId());
+            if (firstProductId == null) {
+                firstProductId = product.getId();
+            }
+        }
+        entityManager.persist(promotion);
+        pricingService.recalculateProducts(productIds);
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void productDetailIsLoadedWithOneStatement() {
+        ProductDTO product = productService.getProductById(firstProductId);
+
+        assertEquals(2, product.media().size());
+        assertEquals(0, new BigDecimal("90.00").compareTo(product.effectivePrice()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void productPageIsLoadedWithBoundedStatements() {
+        Page<ProductDTO> page = productService.getAllProducts(PageRequest.of(0, PAGE_SIZE));
+
+        assertEquals(PAGE_SIZE, page.getNumberOfElements());
+        // Página + COUNT + multimedia, sin importar el tamaño de la página
+        assertTrue(statistics.getPrepareStatementCount() <= 3,
+                "Se ejecutaron " + statistics.getPrepareStatementCount() + " consultas");
+    }
+
+    @Test
+    void searchPageIsLoadedWithBoundedStatements() {
+        ProductSearchCriteria criteria = new ProductSearchCriteria(null, category.getId(), false, null, null, null, false);
+        Page<ProductDTO> page = productService.searchProducts(criteria, PageRequest.of(0, PAGE_SIZE));
+
+        assertEquals(PAGE_SIZE, page.getNumberOfElements());
+        assertTrue(page.getContent().stream().allMatch(p -> p.media().size() == 2));
+        assertTrue(statistics.getPrepareStatementCount() <= 3,
+                "Se ejecutaron " + statistics.getPrepareStatementCount() + " consultas");
+    }
+}
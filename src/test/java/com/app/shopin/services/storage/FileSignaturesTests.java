@@ -0,0 +1,81 @@
+package com.app.shopin.services.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileSignaturesTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void recognisesImageSignatures() {
+        assertEquals("jpg", extension(0xFF, 0xD8, 0xFF, 0xE0, 0x00, 0x10));
+        assertEquals("png", extension(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A));
+        assertEquals("gif", extension('G', 'I', 'F', '8', '9', 'a'));
+        assertEquals("webp", extension('R', 'I', 'F', 'F', 0x24, 0, 0, 0, 'W', 'E', 'B', 'P', 'V', 'P', '8', ' '));
+    }
+
+    @Test
+    void recognisesVideoSignatures() {
+        assertEquals("webm", extension(0x1A, 0x45, 0xDF, 0xA3, 0x9F, 0x42));
+        assertEquals("mp4", extension(0, 0, 0, 0x20, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm'));
+        assertEquals("mov", extension(0, 0, 0, 0x14, 'f', 't', 'y', 'p', 'q', 't', ' ', ' '));
+    }
+
+    @Test
+    void riffWithoutWebpIsNotAnImage() {
+        // Un WAV también empieza por RIFF
+        assertEquals("bin", extension('R', 'I', 'F', 'F', 0x24, 0, 0, 0, 'W', 'A', 'V', 'E'));
+    }
+
+    @Test
+    void shortOrUnknownHeadersAreBinary() {
+        assertEquals("bin", extension());
+        assertEquals("bin", extension(0xFF, 0xD8));
+        assertEquals("bin", extension('%', 'P', 'D', 'F', '-', '1', '.', '7'));
+    }
+
+    @Test
+    void onlyTheReportedLengthIsConsidered() {
+        byte[] header = {(byte) 0x89, 'P', 'N', 'G'};
+
+        assertEquals("png", FileSignatures.extension(header, 4));
+        assertEquals("bin", FileSignatures.extension(header, 3));
+    }
+
+    @Test
+    void contentTypeFollowsTheExtension() {
+        assertEquals("image/jpeg", FileSignatures.contentType("products/ab/cd/abcd.jpg"));
+        assertEquals("video/quicktime", FileSignatures.contentType("products/ab/cd/abcd.mov"));
+        assertEquals("application/octet-stream", FileSignatures.contentType("products/ab/cd/abcd.bin"));
+        assertEquals("application/octet-stream", FileSignatures.contentType("sin-extension"));
+    }
+
+    @Test
+    void detectContentTypeReadsTheFileHeader() throws IOException {
+        Path png = Files.write(tempDir.resolve("foto.txt"), new byte[]{(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0});
+        Path text = Files.writeString(tempDir.resolve("foto.png"), "no soy una imagen", StandardCharsets.UTF_8);
+        Path empty = Files.createFile(tempDir.resolve("vacio"));
+
+        // El nombre no cuenta: solo el contenido
+        assertEquals("image/png", FileSignatures.detectContentType(png));
+        assertEquals("application/octet-stream", FileSignatures.detectContentType(text));
+        assertEquals("application/octet-stream", FileSignatures.detectContentType(empty));
+    }
+
+    private static String extension(int... bytes) {
+        byte[] header = new byte[16];
+        for (int i = 0; i < bytes.length; i++) {
+            header[i] = (byte) bytes[i];
+        }
+        return FileSignatures.extension(header, bytes.length);
+    }
+}
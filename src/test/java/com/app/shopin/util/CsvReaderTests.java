@@ -0,0 +1,60 @@
+package com.app.shopin.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvReaderTests {
+
+    @Test
+    void readsPlainRecordsAndSkipsBlankLines() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("sku,name\r\n\r\nA-1,Uno\nA-2,\n"));
+
+        assertEquals(List.of("sku", "name"), csv.readRecord());
+        assertEquals(List.of("A-1", "Uno"), csv.readRecord());
+        assertEquals(3, csv.getRecordLine());
+        assertEquals(List.of("A-2", ""), csv.readRecord());
+        assertNull(csv.readRecord());
+    }
+
+    @Test
+    void readsLastRecordWithoutTrailingNewline() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("A-1,Uno"));
+
+        assertEquals(List.of("A-1", "Uno"), csv.readRecord());
+        assertNull(csv.readRecord());
+    }
+
+    @Test
+    void quotedFieldsKeepSeparatorsEscapedQuotesAndLineBreaks() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("\"A-1\",\"Uno, dos\",\"dice \"\"hola\"\"\"\n\"B-2\",\"línea 1\nlínea 2\",x\nC-3,y,z\n"));
+
+        assertEquals(List.of("A-1", "Uno, dos", "dice \"hola\""), csv.readRecord());
+        assertEquals(List.of("B-2", "línea 1\nlínea 2", "x"), csv.readRecord());
+        assertEquals(List.of("C-3", "y", "z"), csv.readRecord());
+        // C-3 empieza en la línea 4: el registro anterior ocupa dos
+        assertEquals(4, csv.getRecordLine());
+    }
+
+    @Test
+    void customSeparator() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("a;\"b;c\";d\n"), ';');
+
+        assertEquals(List.of("a", "b;c", "d"), csv.readRecord());
+    }
+
+    @Test
+    void unterminatedQuoteReportsTheLineWhereTheRecordStarts() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("A-1,Uno\nA-2,\"sin cerrar\nA-3,Tres\n"));
+
+        assertEquals(List.of("A-1", "Uno"), csv.readRecord());
+        CsvReader.MalformedRecordException e = assertThrows(CsvReader.MalformedRecordException.class, csv::readRecord);
+        assertEquals(2, e.getLine());
+    }
+}